@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.client.SyntheticCluster;
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OpenStackPlugin#handle} for the messages GoCD sends most, against a stubbed cluster with
+ * {@link #population} instances, all of them registered as agents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginRequestBenchmark {
+
+    @Param({"100", "2000"})
+    public int population;
+
+    private OpenStackPlugin plugin;
+    private GoPluginApiRequest shouldAssignWork;
+    private GoPluginApiRequest createAgent;
+    private GoPluginApiRequest serverPing;
+
+    @Setup
+    public void setUp() {
+        final int instanceCount = population;
+        plugin = new OpenStackPlugin(settings -> SyntheticCluster.create(settings, instanceCount));
+        plugin.initializeGoApplicationAccessor(new SyntheticGoServer(population));
+
+        final Map<String, String> clusterProfile = SyntheticGoServer.clusterProfile("bench-");
+        shouldAssignWork = SyntheticGoServer.shouldAssignWork(clusterProfile, SyntheticCluster.instanceId(population / 2));
+        createAgent = SyntheticGoServer.createAgent(clusterProfile);
+        serverPing = SyntheticGoServer.serverPing(Collections.singletonList(clusterProfile));
+        plugin.handle(serverPing);
+    }
+
+    @Benchmark
+    public GoPluginApiResponse shouldAssignWork() {
+        return plugin.handle(shouldAssignWork);
+    }
+
+    @Benchmark
+    public GoPluginApiResponse createAgent() {
+        return plugin.handle(createAgent);
+    }
+
+    @Benchmark
+    public GoPluginApiResponse serverPing() {
+        return plugin.handle(serverPing);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.client.SyntheticCluster;
+import cd.go.contrib.elasticagents.openstack.requests.CreateAgentRequest;
+import cd.go.contrib.elasticagents.openstack.requests.JobCompletionRequest;
+import cd.go.contrib.elasticagents.openstack.requests.ServerPingRequest;
+import cd.go.contrib.elasticagents.openstack.requests.ShouldAssignWorkRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON parsing of the messages GoCD sends to the plugin, and of the list-agents response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    @Param({"1", "6"})
+    public int clusters;
+
+    @Param({"2000"})
+    public int agents;
+
+    private String shouldAssignWork;
+    private String createAgent;
+    private String jobCompletion;
+    private String serverPing;
+    private String listAgents;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> clusterProfile = SyntheticGoServer.clusterProfile("parse-");
+        final String agentId = SyntheticCluster.instanceId(1);
+        shouldAssignWork = SyntheticGoServer.shouldAssignWork(clusterProfile, agentId).requestBody();
+        createAgent = SyntheticGoServer.createAgent(clusterProfile).requestBody();
+        jobCompletion = SyntheticGoServer.jobCompletion(clusterProfile, agentId).requestBody();
+        List<Map<String, String>> clusterProfiles = new ArrayList<>();
+        for (int i = 0; i < clusters; i++) {
+            clusterProfiles.add(SyntheticGoServer.clusterProfile("parse-" + i + "-"));
+        }
+        serverPing = SyntheticGoServer.serverPing(clusterProfiles).requestBody();
+        listAgents = new SyntheticGoServer(agents).listAgentsResponse();
+    }
+
+    @Benchmark
+    public ShouldAssignWorkRequest shouldAssignWork() {
+        return ShouldAssignWorkRequest.fromJSON(shouldAssignWork);
+    }
+
+    @Benchmark
+    public CreateAgentRequest createAgent() {
+        return CreateAgentRequest.fromJSON(createAgent);
+    }
+
+    @Benchmark
+    public JobCompletionRequest jobCompletion() {
+        return JobCompletionRequest.fromJSON(jobCompletion);
+    }
+
+    @Benchmark
+    public ServerPingRequest serverPing() {
+        return ServerPingRequest.fromJSON(serverPing);
+    }
+
+    @Benchmark
+    public Agents listAgents() {
+        return Agents.fromJSONArray(listAgents);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.client.SyntheticCluster;
+import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+
+import java.util.*;
+
+/**
+ * In-process GoCD server for benchmarks. It answers list-agents with a fixed population of agents and accepts
+ * every other call, and builds the messages the GoCD server sends to the plugin.
+ */
+public class SyntheticGoServer extends GoApplicationAccessor {
+    private final String agentsJson;
+
+    public SyntheticGoServer(int agentCount) {
+        List<Map<String, String>> agents = new ArrayList<>();
+        for (int i = 0; i < agentCount; i++) {
+            agents.add(agent(SyntheticCluster.instanceId(i), i % 2 == 0 ? "Idle" : "Building"));
+        }
+        this.agentsJson = Gsons.DEFAULT.toJson(agents);
+    }
+
+    @Override
+    public GoApiResponse submit(GoApiRequest request) {
+        if (Constants.REQUEST_SERVER_LIST_AGENTS.equals(request.api())) {
+            return DefaultGoApiResponse.success(agentsJson);
+        }
+        return DefaultGoApiResponse.success("");
+    }
+
+    public String listAgentsResponse() {
+        return agentsJson;
+    }
+
+    /**
+     * Cluster profile of the stubbed cluster. The VM prefix is unique, so every call describes a new cluster.
+     */
+    public static Map<String, String> clusterProfile(String vmPrefix) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("openstack_endpoint", "https://openstack.example.com:13000/v3");
+        settings.put("openstack_domain", "Default");
+        settings.put("openstack_tenant", "tenant");
+        settings.put("openstack_vm_prefix", vmPrefix + UUID.randomUUID().toString().substring(0, 8) + "-");
+        settings.put("openstack_user", "user");
+        settings.put("openstack_password", "secret");
+        settings.put("go_server_url", "https://gocd.example.com:8154/go");
+        settings.put("agent_pending_register_timeout", "20");
+        settings.put("openstack_keystone_version", "3");
+        settings.put("agent_ttl_max", "30");
+        settings.put("default_min_instance_limit", "1");
+        settings.put("default_max_instance_limit", "10");
+        settings.put("openstack_image", SyntheticCluster.IMAGE_ID);
+        settings.put("openstack_image_cache_ttl", "25");
+        settings.put("use_previous_openstack_image", "false");
+        settings.put("openstack_flavor", SyntheticCluster.FLAVOR_ID);
+        settings.put("openstack_network", "780f2cfc-389b-4cc5-9b85-ed03a73975ee");
+        settings.put("ssl_verification_disabled", "false");
+        settings.put("delete_error_instances", "true");
+        return settings;
+    }
+
+    public static ClusterProfileProperties clusterProfileProperties(String vmPrefix) {
+        return ClusterProfileProperties.fromConfiguration(clusterProfile(vmPrefix));
+    }
+
+    public static GoPluginApiRequest shouldAssignWork(Map<String, String> clusterProfile, String agentId) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("agent", agent(agentId, "Idle"));
+        body.put("environment", null);
+        body.put("job_identifier", jobIdentifier());
+        body.put("elastic_agent_profile_properties", elasticAgentProfile());
+        body.put("cluster_profile_properties", clusterProfile);
+        return request(Request.REQUEST_SHOULD_ASSIGN_WORK, body);
+    }
+
+    public static GoPluginApiRequest createAgent(Map<String, String> clusterProfile) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("auto_register_key", UUID.randomUUID().toString());
+        body.put("environment", null);
+        body.put("job_identifier", jobIdentifier());
+        body.put("elastic_agent_profile_properties", elasticAgentProfile());
+        body.put("cluster_profile_properties", clusterProfile);
+        return request(Request.REQUEST_CREATE_AGENT, body);
+    }
+
+    public static GoPluginApiRequest jobCompletion(Map<String, String> clusterProfile, String agentId) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("elastic_agent_id", agentId);
+        body.put("job_identifier", jobIdentifier());
+        body.put("cluster_profile_properties", clusterProfile);
+        return request(Request.REQUEST_JOB_COMPLETION, body);
+    }
+
+    public static GoPluginApiRequest serverPing(Collection<Map<String, String>> clusterProfiles) {
+        return request(Request.REQUEST_SERVER_PING,
+                Collections.singletonMap("all_cluster_profile_properties", clusterProfiles));
+    }
+
+    private static GoPluginApiRequest request(Request request, Object body) {
+        DefaultGoPluginApiRequest pluginRequest = new DefaultGoPluginApiRequest("elastic-agent", "5.0", request.requestName());
+        pluginRequest.setRequestBody(Gsons.DEFAULT.toJson(body));
+        return pluginRequest;
+    }
+
+    private static Map<String, String> agent(String agentId, String state) {
+        Map<String, String> agent = new LinkedHashMap<>();
+        agent.put("agent_id", agentId);
+        agent.put("agent_state", state);
+        agent.put("build_state", state);
+        agent.put("config_state", "Enabled");
+        return agent;
+    }
+
+    private static Map<String, String> elasticAgentProfile() {
+        Map<String, String> profile = new LinkedHashMap<>();
+        profile.put(Constants.OPENSTACK_IMAGE_ID_ARGS, SyntheticCluster.IMAGE_ID);
+        profile.put(Constants.OPENSTACK_FLAVOR_ID_ARGS, SyntheticCluster.FLAVOR_ID);
+        profile.put(Constants.OPENSTACK_MIN_INSTANCE_LIMIT, "1");
+        profile.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "10");
+        return profile;
+    }
+
+    private static Map<String, Object> jobIdentifier() {
+        Map<String, Object> job = new LinkedHashMap<>();
+        job.put("pipeline_name", "build");
+        job.put("pipeline_counter", 1);
+        job.put("pipeline_label", "1");
+        job.put("stage_name", "compile");
+        job.put("stage_counter", "1");
+        job.put("job_name", "compile-" + UUID.randomUUID());
+        job.put("job_id", 1);
+        return job;
+    }
+}
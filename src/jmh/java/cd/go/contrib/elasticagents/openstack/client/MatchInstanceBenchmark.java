@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.Constants;
+import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
+import cd.go.contrib.elasticagents.openstack.SyntheticGoServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchInstanceBenchmark {
+
+    @Param({"100", "2000"})
+    public int instanceCount;
+
+    private OpenStackInstances instances;
+    private Map<String, String> properties;
+    private String instanceId;
+
+    @Setup
+    public void setUp() {
+        final ClusterProfileProperties settings = SyntheticGoServer.clusterProfileProperties("match-");
+        instances = SyntheticCluster.create(settings, instanceCount);
+        properties = new HashMap<>();
+        properties.put(Constants.OPENSTACK_IMAGE_ID_ARGS, SyntheticCluster.IMAGE_ID);
+        properties.put(Constants.OPENSTACK_FLAVOR_ID_ARGS, SyntheticCluster.FLAVOR_ID);
+        instanceId = SyntheticCluster.instanceId(instanceCount / 2);
+    }
+
+    @Benchmark
+    public boolean matchInstance() {
+        return instances.matchInstance(instanceId, properties, null, "benchmark", false);
+    }
+
+    @Benchmark
+    public boolean matchInstanceWithPreviousImage() {
+        return instances.matchInstance(instanceId, properties, null, "benchmark", true);
+    }
+}
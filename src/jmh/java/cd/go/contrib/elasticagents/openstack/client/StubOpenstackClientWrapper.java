@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import org.openstack4j.model.common.ActionResponse;
+import org.openstack4j.model.compute.Server;
+import org.openstack4j.model.compute.ServerCreate;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link OpenstackClientWrapper} answering from memory, so that benchmarks measure the plugin and not OpenStack.
+ */
+class StubOpenstackClientWrapper extends OpenstackClientWrapper {
+    private final List<Server> servers;
+    private final AtomicInteger booted = new AtomicInteger();
+
+    StubOpenstackClientWrapper(PluginSettings pluginSettings, int serverCount) {
+        super(pluginSettings, null, null, null);
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < serverCount; i++) {
+            servers.add(server(SyntheticCluster.instanceId(i), pluginSettings.getOpenstackVmPrefix() + i));
+        }
+        this.servers = Collections.unmodifiableList(servers);
+    }
+
+    @Override
+    String getImageId(String nameOrId, String transactionId) {
+        return nameOrId;
+    }
+
+    @Override
+    String getPreviousImageId(String imageName, String transactionId) {
+        return imageName;
+    }
+
+    @Override
+    String getFlavorId(String nameOrId, String transactionId) {
+        return nameOrId;
+    }
+
+    @Override
+    void refreshFlavorsIfDue(String transactionId) {
+    }
+
+    @Override
+    boolean instanceNameExists(String instanceName) {
+        return false;
+    }
+
+    @Override
+    Server bootServer(ServerCreate build) {
+        return server(UUID.randomUUID().toString(), "booted-" + booted.incrementAndGet());
+    }
+
+    @Override
+    Server getServer(String id) {
+        return server(id, id);
+    }
+
+    @Override
+    ActionResponse terminate(String id) {
+        return ActionResponse.actionSuccess();
+    }
+
+    @Override
+    List<Server> listServers(String prefix) {
+        return servers;
+    }
+
+    @Override
+    List<Server> listServersChangedSince(String prefix, Instant since) {
+        return Collections.emptyList();
+    }
+
+    private static Server server(String id, String name) {
+        final Date created = new Date();
+        return (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getName":
+                            return name;
+                        case "getStatus":
+                            return Server.Status.ACTIVE;
+                        case "getImageId":
+                            return SyntheticCluster.IMAGE_ID;
+                        case "getFlavorId":
+                            return SyntheticCluster.FLAVOR_ID;
+                        case "getCreated":
+                            return created;
+                        case "getMetadata":
+                            return Collections.emptyMap();
+                        case "hashCode":
+                            return id.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Server{id=" + id + ", name=" + name + "}";
+                        default:
+                            return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                    }
+                });
+    }
+}
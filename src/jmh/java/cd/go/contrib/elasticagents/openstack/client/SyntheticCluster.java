@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+
+import java.util.Date;
+
+/**
+ * Builds {@link OpenStackInstances} of a cluster with a given number of running instances, all with the same
+ * image and flavor, on top of {@link StubOpenstackClientWrapper}.
+ */
+public class SyntheticCluster {
+    public static final String IMAGE_ID = "7637f039-027d-471f-8d6c-4177635f84f8";
+    public static final String FLAVOR_ID = "c1980bb5-ed59-4573-83c9-8391b53b3a55";
+
+    private SyntheticCluster() {
+    }
+
+    public static String instanceId(int i) {
+        return String.format("00000000-0000-0000-0000-%012d", i);
+    }
+
+    public static OpenStackInstances create(PluginSettings pluginSettings, int instanceCount) {
+        final OpenStackInstances instances = new OpenStackInstances(pluginSettings,
+                new StubOpenstackClientWrapper(pluginSettings, instanceCount));
+        for (int i = 0; i < instanceCount; i++) {
+            instances.register(new OpenStackInstance(instanceId(i), new Date(), null, IMAGE_ID, FLAVOR_ID, pluginSettings));
+        }
+        instances.syncInventory();
+        return instances;
+    }
+}
@@ -19,12 +19,26 @@ package cd.go.contrib.elasticagents.openstack;
 import cd.go.contrib.elasticagents.openstack.model.Agent;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
-
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
 
+/**
+ * The agents known to the GoCD server, indexed by elastic agent id.
+ * The collections returned are read-only views. Agents read with {@link #fromJSONArray(String)} can be shared
+ * between callers and are read-only as a whole, adding to them fails.
+ */
 public class Agents {
+    private static final TypeAdapter<Agent> AGENT_ADAPTER = Agent.GSON.getAdapter(Agent.class);
 
-    private final Map<String, Agent> agents = new HashMap<>();
+    private final Map<String, Agent> agents;
+    private final boolean readOnly;
 
     // Filter for agents that can be disabled safely
     private static final Predicate<Agent> AGENT_IDLE_PREDICATE = new Predicate<>() {
@@ -45,15 +59,47 @@ public class Agents {
     };
 
     public Agents() {
-
+        this(new HashMap<>(), false);
     }
 
     public Agents(Collection<Agent> toCopy) {
+        this();
         for (Agent agent : toCopy) {
             agents.put(agent.elasticAgentId(), agent);
         }
     }
 
+    private Agents(Map<String, Agent> agents, boolean readOnly) {
+        this.agents = agents;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Read the agents of a list-agents response one by one into the index, without building an intermediate list.
+     *
+     * @param json JSON array of agents
+     * @return the agents in the array, read-only
+     */
+    public static Agents fromJSONArray(String json) {
+        final Map<String, Agent> agents = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setStrictness(Strictness.LEGACY_STRICT);
+            if (reader.peek() != JsonToken.NULL) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final Agent agent = AGENT_ADAPTER.read(reader);
+                    if (agent != null) {
+                        agents.put(agent.elasticAgentId(), agent);
+                    }
+                }
+                reader.endArray();
+            }
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return new Agents(agents, true);
+    }
+
     public void addAll(Collection<Agent> toAdd) {
         for (Agent agent : toAdd) {
             add(agent);
@@ -73,7 +119,11 @@ public class Agents {
     }
 
     public Set<String> agentIds() {
-        return new LinkedHashSet<>(agents.keySet());
+        return Collections.unmodifiableSet(agents.keySet());
+    }
+
+    public Agent find(String agentId) {
+        return agents.get(agentId);
     }
 
     public boolean containsAgentWithId(String agentId) {
@@ -81,10 +131,16 @@ public class Agents {
     }
 
     public Collection<Agent> agents() {
-        return new ArrayList<>(agents.values());
+        return Collections.unmodifiableCollection(agents.values());
     }
 
+    /**
+     * @throws UnsupportedOperationException if the agents were read with {@link #fromJSONArray(String)}
+     */
     public void add(Agent agent) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("agents read from the GoCD server are read-only");
+        }
         agents.put(agent.elasticAgentId(), agent);
     }
 
@@ -60,6 +60,7 @@ public interface Constants {
     String OPENSTACK_KEYPAIR = "openstack_keypair";
     String OPENSTACK_MIN_INSTANCE_LIMIT = "openstack_min_instance_limit";
     String OPENSTACK_MAX_INSTANCE_LIMIT = "openstack_max_instance_limit";
+    String OPENSTACK_IDLE_AGENTS_TO_KEEP = "openstack_idle_agents_to_keep";
     String OPENSTACK_KEYSTONE_VERSION = "openstack_keystone_ver";
     String OPENSTACK_DOMAIN = "openstack_domain";
 
@@ -20,6 +20,7 @@ import cd.go.contrib.elasticagents.openstack.client.OpenStackInstances;
 import cd.go.contrib.elasticagents.openstack.executors.*;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
 import cd.go.contrib.elasticagents.openstack.requests.*;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
 import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
 import com.thoughtworks.go.plugin.api.GoPlugin;
@@ -33,6 +34,7 @@ import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static cd.go.contrib.elasticagents.openstack.Constants.PLUGIN_IDENTIFIER;
 
@@ -46,11 +48,25 @@ public class OpenStackPlugin implements GoPlugin {
         clusterSpecificInstances = new ConcurrentHashMap<>();
     }
 
+    private final Function<ClusterProfileProperties, OpenStackInstances> instancesFactory;
     private PluginRequest pluginRequest;
 
+    public OpenStackPlugin() {
+        this(OpenStackInstances::new);
+    }
+
+    /**
+     * @param instancesFactory creates the instances of a cluster the first time the cluster is seen,
+     *                         benchmarks use it to run the plugin against stubbed clusters.
+     */
+    OpenStackPlugin(Function<ClusterProfileProperties, OpenStackInstances> instancesFactory) {
+        this.instancesFactory = instancesFactory;
+    }
+
     @Override
     public void initializeGoApplicationAccessor(GoApplicationAccessor accessor) {
         pluginRequest = new PluginRequest(accessor, new ServerHealthMessages());
+        Gsons.preload();
     }
 
     @Override
@@ -84,7 +100,7 @@ public class OpenStackPlugin implements GoPlugin {
                     List<ClusterProfileProperties> listOfClusterProfileProperties = serverPingRequest.allClusterProfileProperties();
                     for (ClusterProfileProperties prop : listOfClusterProfileProperties) {
                         prop.validate(serverPingRequest.toString());
-                        getAgentInstancesFor(prop);
+                        clusterFor(prop);
                     }
                     return serverPingRequest.executor(clusterSpecificInstances, pluginRequest).execute();
                 case REQUEST_GET_CLUSTER_PROFILE_METADATA:
@@ -132,23 +148,30 @@ public class OpenStackPlugin implements GoPlugin {
         }
     }
 
-    private synchronized OpenStackInstances getAgentInstancesFor(ClusterProfileProperties clusterProfileProperties) {
-        OpenStackInstances openStackInstances;
+    /**
+     * Returns the instances of the cluster, once they were refreshed from OpenStack after the plugin started.
+     * Only callers for a cluster that was not refreshed yet wait, callers for other clusters are not held up.
+     */
+    private OpenStackInstances getAgentInstancesFor(ClusterProfileProperties clusterProfileProperties) {
+        final OpenStackInstances openStackInstances = clusterFor(clusterProfileProperties);
+        openStackInstances.awaitInitialRefresh(pluginRequest);
+        return openStackInstances;
+    }
+
+    /**
+     * Returns the instances of the cluster, without waiting for their initial refresh. The server ping refreshes
+     * all clusters itself.
+     */
+    private OpenStackInstances clusterFor(ClusterProfileProperties clusterProfileProperties) {
         final String uuid = clusterProfileProperties.uuid();
         LOG.debug("getAgentInstancesFor [{}]: uuid()={} clusterSpecificAgentInstances.size()={} ",
                 this, uuid, clusterSpecificInstances.size());
-        if (clusterSpecificInstances.containsKey(uuid)) {
-            LOG.debug("getAgentInstancesFor [{}]: clusterProfileProperties={} does exist", this, uuid);
-            openStackInstances = clusterSpecificInstances.get(uuid);
-        } else {
+        return clusterSpecificInstances.computeIfAbsent(uuid, key -> {
             LOG.debug("getAgentInstancesFor [{}]: uuid={}, cluster={} does NOT exist, " +
                             "creating new OpenStackInstances",
                     this, uuid, clusterProfileProperties.getOpenstackEndpoint());
-            openStackInstances = new OpenStackInstances(clusterProfileProperties);
-            clusterSpecificInstances.put(uuid, openStackInstances);
-            openStackInstances.refreshAll(pluginRequest);
-        }
-        return openStackInstances;
+            return instancesFactory.apply(clusterProfileProperties);
+        });
     }
 
     @Override
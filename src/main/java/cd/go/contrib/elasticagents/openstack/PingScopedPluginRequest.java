@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
+
+import java.util.Collection;
+
+/**
+ * {@link PluginRequest} for a single server ping, which lists the agents from the GoCD server once and shares the
+ * result with every cluster and phase of the ping. The snapshot is dropped whenever agents are disabled or deleted.
+ * Callers must not modify the returned {@link Agents}.
+ */
+public class PingScopedPluginRequest extends PluginRequest {
+    private final PluginRequest delegate;
+    private Agents agents;
+
+    public PingScopedPluginRequest(PluginRequest delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized Agents listAgents() throws ServerRequestFailedException {
+        if (agents == null) {
+            agents = delegate.listAgents();
+        } else {
+            LOG.debug("[listAgents] using agents listed earlier in this ping");
+        }
+        return agents;
+    }
+
+    @Override
+    public void disableAgents(Collection<Agent> toBeDisabled) throws ServerRequestFailedException {
+        try {
+            delegate.disableAgents(toBeDisabled);
+        } finally {
+            if (!toBeDisabled.isEmpty()) {
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    public void deleteAgents(Collection<Agent> toBeDeleted) throws ServerRequestFailedException {
+        try {
+            delegate.deleteAgents(toBeDeleted);
+        } finally {
+            if (!toBeDeleted.isEmpty()) {
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    public void addServerHealthMessage(String id, ServerHealthMessages.Type type, String message) {
+        delegate.addServerHealthMessage(id, type, message);
+    }
+
+    @Override
+    public void removeServerHealthMessage(String id) {
+        delegate.removeServerHealthMessage(id);
+    }
+
+    @Override
+    public void sendServerHealthMessage() {
+        delegate.sendServerHealthMessage();
+    }
+
+    private synchronized void invalidate() {
+        agents = null;
+    }
+}
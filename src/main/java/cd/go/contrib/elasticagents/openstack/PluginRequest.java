@@ -40,6 +40,10 @@ public class PluginRequest {
         this.serverHealthMessages = serverHealthMessages;
     }
 
+    protected PluginRequest(PluginRequest other) {
+        this(other.accessor, other.serverHealthMessages);
+    }
+
     public Agents listAgents() throws ServerRequestFailedException {
         DefaultGoApiRequest request = new DefaultGoApiRequest(REQUEST_SERVER_LIST_AGENTS, PROCESSOR_API_VERSION, PLUGIN_IDENTIFIER);
         GoApiResponse response = accessor.submit(request);
@@ -48,7 +52,7 @@ public class PluginRequest {
             throw ServerRequestFailedException.listAgents(response);
         }
 
-        return new Agents(Agent.fromJSONArray(response.responseBody()));
+        return Agents.fromJSONArray(response.responseBody());
     }
 
     public void disableAgents(Collection<Agent> toBeDisabled) throws ServerRequestFailedException {
@@ -17,9 +17,8 @@
 package cd.go.contrib.elasticagents.openstack;
 
 
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import org.apache.commons.lang3.StringUtils;
@@ -27,10 +26,7 @@ import org.apache.commons.lang3.StringUtils;
 import java.time.Duration;
 
 public class PluginSettings {
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .excludeFieldsWithoutExposeAnnotation()
-            .create();
+    public static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
 
 
     @Expose
@@ -117,8 +113,16 @@ public class PluginSettings {
     @SerializedName("delete_error_instances")
     private Boolean deleteErrorInstances;
 
-    private Duration agentRegisterPeriod;
-    private Duration agentTTLMinPeriod;
+    @Expose
+    @SerializedName("async_agent_creation")
+    private Boolean asyncAgentCreation;
+
+    @Expose
+    @SerializedName("openstack_max_concurrent_boots")
+    private String openstackMaxConcurrentBoots;
+
+    private transient Duration agentRegisterPeriod;
+    private transient Duration agentTTLMinPeriod;
 
     public static PluginSettings fromJSON(String json) {
         return GSON.fromJson(json, PluginSettings.class);
@@ -286,6 +290,27 @@ public class PluginSettings {
         this.deleteErrorInstances = deleteErrorInstances;
     }
 
+    public Boolean getAsyncAgentCreation() {
+        if (asyncAgentCreation == null)
+            return false;
+        return asyncAgentCreation;
+    }
+
+    public void setAsyncAgentCreation(boolean asyncAgentCreation) {
+        this.asyncAgentCreation = asyncAgentCreation;
+    }
+
+    public int getOpenstackMaxConcurrentBoots() {
+        if (StringUtils.isBlank(openstackMaxConcurrentBoots)) {
+            return 5;
+        }
+        return Integer.parseInt(openstackMaxConcurrentBoots);
+    }
+
+    public void setOpenstackMaxConcurrentBoots(String openstackMaxConcurrentBoots) {
+        this.openstackMaxConcurrentBoots = openstackMaxConcurrentBoots;
+    }
+
     @Override
     public String toString() {
         return "PluginSettings{" +
@@ -310,6 +335,8 @@ public class PluginSettings {
                 ", openstackUserdata='" + openstackUserdata + '\'' +
                 ", sslVerificationDisabled=" + sslVerificationDisabled +
                 ", deleteErrorInstances=" + deleteErrorInstances +
+                ", asyncAgentCreation=" + asyncAgentCreation +
+                ", openstackMaxConcurrentBoots='" + openstackMaxConcurrentBoots + '\'' +
                 ", agentRegisterPeriod=" + agentRegisterPeriod +
                 ", agentTTLMinPeriod=" + agentTTLMinPeriod +
                 '}';
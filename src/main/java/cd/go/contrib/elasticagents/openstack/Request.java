@@ -63,6 +63,10 @@ public enum Request {
         return null;
     }
 
+    public String requestName() {
+        return requestName;
+    }
+
     private static class Constants {
         static final String ELASTIC_AGENT_REQUEST_PREFIX = "cd.go.elastic-agent";
         static final String GO_PLUGIN_SETTINGS_PREFIX = "go.plugin-settings";
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fair permits for the boots in flight against a cluster, whose limit can change while boots hold permits.
+ * Lowering the limit takes permits away as they are released, boots in flight are not interrupted.
+ */
+class BootPermits extends Semaphore {
+    private int limit;
+
+    BootPermits(int limit) {
+        super(limit, true);
+        this.limit = limit;
+    }
+
+    synchronized void resize(int newLimit) {
+        if (newLimit > limit) {
+            release(newLimit - limit);
+        } else if (newLimit < limit) {
+            reducePermits(limit - newLimit);
+        }
+        limit = newLimit;
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Counters of the lookups answered by a catalog and of the listings that loaded it.
+ * <ul>
+ *     <li>hits: found in the catalog</li>
+ *     <li>misses: not in the catalog, looked up in OpenStack</li>
+ *     <li>unknown hits: not in the catalog and recently not found in OpenStack either, failed without a call</li>
+ * </ul>
+ */
+class CatalogStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unknownHits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void unknownHit() {
+        unknownHits.increment();
+    }
+
+    void loaded(long elapsedNanos) {
+        loads.increment();
+        loadNanos.add(elapsedNanos);
+        maxLoadNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    void loadFailed() {
+        loadFailures.increment();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long unknownHits() {
+        return unknownHits.sum();
+    }
+
+    long loads() {
+        return loads.sum();
+    }
+
+    long loadFailures() {
+        return loadFailures.sum();
+    }
+
+    Duration averageLoadTime() {
+        final long count = loads.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(loadNanos.sum() / count);
+    }
+
+    Duration maxLoadTime() {
+        return Duration.ofNanos(maxLoadNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return format("hits={0,number,#} misses={1,number,#} unknownHits={2,number,#} loads={3,number,#} loadFailures={4,number,#} averageLoad={5,number,#}ms maxLoad={6,number,#}ms",
+                hits(), misses(), unknownHits(), loads(), loadFailures(), averageLoadTime().toMillis(), maxLoadTime().toMillis());
+    }
+}
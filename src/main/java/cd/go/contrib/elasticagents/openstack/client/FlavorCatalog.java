@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+import org.openstack4j.model.compute.Flavor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory view of the flavors of one cluster, filled from a single flavors/detail listing.
+ * Flavors are indexed by id and by name, and keep their vCPU, RAM and disk sizes.
+ * <p>
+ * A catalog that missed a lookup can be marked as outdated, so that the next refresh lists the flavors again
+ * instead of waiting for the refresh period.
+ * <p>
+ * The indexes are kept as an immutable snapshot that is swapped atomically, so readers never take a lock.
+ */
+class FlavorCatalog {
+    public static final Logger LOG = Logger.getLoggerFor(FlavorCatalog.class);
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap(), null);
+    private volatile boolean outdated;
+
+    /**
+     * Replace the catalog with the result of a listing.
+     *
+     * @param listing  all flavors visible to the cluster
+     * @param listedAt when the listing was requested
+     */
+    void replace(List<? extends Flavor> listing, Instant listedAt) {
+        Map<String, Flavor> byId = new HashMap<>();
+        Map<String, Flavor> byName = new HashMap<>();
+        for (Flavor flavor : listing) {
+            byId.put(flavor.getId(), flavor);
+            if (flavor.getName() != null) {
+                byName.putIfAbsent(flavor.getName(), flavor);
+            }
+        }
+        outdated = false;
+        snapshot = new Snapshot(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byName), listedAt);
+        LOG.debug("[replace] catalog has {} flavors", byId.size());
+    }
+
+    /**
+     * @return the flavor with the given id or name, or null if the catalog has no such flavor
+     */
+    Flavor flavor(String nameOrId) {
+        final Snapshot current = snapshot;
+        final Flavor flavor = current.byId.get(nameOrId);
+        return flavor != null ? flavor : current.byName.get(nameOrId);
+    }
+
+    void markOutdated() {
+        outdated = true;
+    }
+
+    /**
+     * @return true if the catalog was never listed, was listed longer than the given period ago, or was marked as outdated
+     */
+    boolean isOlderThan(Duration period, Instant now) {
+        final Instant listedAt = snapshot.listedAt;
+        return listedAt == null || outdated || !listedAt.plus(period).isAfter(now);
+    }
+
+    Instant listedAt() {
+        return snapshot.listedAt;
+    }
+
+    private static class Snapshot {
+        private final Map<String, Flavor> byId;
+        private final Map<String, Flavor> byName;
+        private final Instant listedAt;
+
+        private Snapshot(Map<String, Flavor> byId, Map<String, Flavor> byName, Instant listedAt) {
+            this.byId = byId;
+            this.byName = byName;
+            this.listedAt = listedAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+import org.openstack4j.model.compute.Image;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the images of one cluster, filled from a single images/detail listing.
+ * Images are indexed by id and by name, a name resolves to the most recently created image with that name.
+ * <p>
+ * For every name the ids of the images listed with it are remembered across listings as its lineage, ordered by
+ * creation time, so that the image used before the current one is still known after it was deleted or renamed.
+ * At most {@link #LINEAGE_LENGTH} ids are kept per name.
+ * <p>
+ * The indexes are kept as an immutable snapshot that is swapped atomically, so readers never take a lock.
+ */
+class ImageCatalog {
+    public static final Logger LOG = Logger.getLoggerFor(ImageCatalog.class);
+    static final int LINEAGE_LENGTH = 10;
+
+    private final Map<String, List<Version>> lineage = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap(), null);
+
+    /**
+     * Replace the catalog with the result of a listing.
+     *
+     * @param listing  all images visible to the cluster
+     * @param listedAt when the listing was requested, used as creation time of images without one
+     */
+    synchronized void replace(List<? extends Image> listing, Instant listedAt) {
+        Map<String, Version> byId = new HashMap<>();
+        Map<String, Version> byName = new HashMap<>();
+        for (Image image : listing) {
+            final Version version = new Version(image.getId(), createdAt(image, listedAt));
+            byId.put(version.id, version);
+            final String name = image.getName();
+            if (name != null) {
+                byName.merge(name, version, (current, other) -> other.created.isAfter(current.created) ? other : current);
+                addToLineage(name, version);
+            }
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byName), listedAt);
+        LOG.debug("[replace] catalog has {} images with {} names", byId.size(), byName.size());
+    }
+
+    /**
+     * Add an image found by id outside of a listing, it is kept until the next listing.
+     */
+    synchronized void add(Image image, Instant foundAt) {
+        final Snapshot current = snapshot;
+        Map<String, Version> byId = new HashMap<>(current.byId);
+        byId.put(image.getId(), new Version(image.getId(), createdAt(image, foundAt)));
+        snapshot = new Snapshot(Collections.unmodifiableMap(byId), current.byName, current.listedAt);
+    }
+
+    /**
+     * @return the id of the image with the given id or name, or null if the catalog has no such image
+     */
+    String imageId(String nameOrId) {
+        final Snapshot current = snapshot;
+        if (current.byId.containsKey(nameOrId)) {
+            return nameOrId;
+        }
+        final Version version = current.byName.get(nameOrId);
+        return version == null ? null : version.id;
+    }
+
+    /**
+     * @return the id the image name resolved to before its current image, or an empty string if there was none
+     */
+    String previousImageId(String imageName) {
+        final List<Version> versions = lineage.get(imageName);
+        if (versions == null) {
+            return "";
+        }
+        final Version current = snapshot.byName.get(imageName);
+        int index = versions.size() - 1;
+        if (current != null) {
+            while (index >= 0 && !versions.get(index).id.equals(current.id)) {
+                index--;
+            }
+            if (index < 0) {
+                index = versions.size() - 1;
+            }
+        }
+        return index > 0 ? versions.get(index - 1).id : "";
+    }
+
+    /**
+     * @return true if the catalog was never listed, or was listed longer than the given period ago
+     */
+    boolean isOlderThan(Duration period, Instant now) {
+        final Instant listedAt = snapshot.listedAt;
+        return listedAt == null || !listedAt.plus(period).isAfter(now);
+    }
+
+    Instant listedAt() {
+        return snapshot.listedAt;
+    }
+
+    synchronized void resetLineage() {
+        lineage.clear();
+    }
+
+    private void addToLineage(String name, Version version) {
+        lineage.compute(name, (key, versions) -> {
+            if (versions == null) {
+                return Collections.singletonList(version);
+            }
+            if (versions.stream().anyMatch(known -> known.id.equals(version.id))) {
+                return versions;
+            }
+            List<Version> updated = new ArrayList<>(versions);
+            int index = updated.size();
+            while (index > 0 && updated.get(index - 1).created.isAfter(version.created)) {
+                index--;
+            }
+            updated.add(index, version);
+            if (updated.size() > LINEAGE_LENGTH) {
+                updated.remove(0);
+            }
+            return Collections.unmodifiableList(updated);
+        });
+    }
+
+    private static Instant createdAt(Image image, Instant fallback) {
+        return image.getCreated() == null ? fallback : image.getCreated().toInstant();
+    }
+
+    private static class Version {
+        private final String id;
+        private final Instant created;
+
+        private Version(String id, Instant created) {
+            this.id = id;
+            this.created = created;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, Version> byId;
+        private final Map<String, Version> byName;
+        private final Instant listedAt;
+
+        private Snapshot(Map<String, Version> byId, Map<String, Version> byName, Instant listedAt) {
+            this.byId = byId;
+            this.byName = byName;
+            this.listedAt = listedAt;
+        }
+    }
+}
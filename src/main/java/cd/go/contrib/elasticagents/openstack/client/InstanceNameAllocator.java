@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Allocates instance names without asking OpenStack. A name is the VM prefix followed by a random id of the
+ * plugin run and a sequence number, so names never repeat within a run and are practically unique across runs.
+ * Names still known to be taken are skipped.
+ */
+class InstanceNameAllocator {
+    static final int RUN_ID_LENGTH = 6;
+    static final int SEQUENCE_LENGTH = 6;
+
+    private final String runId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    InstanceNameAllocator() {
+        this(RandomStringUtils.secure().nextAlphanumeric(RUN_ID_LENGTH).toLowerCase(Locale.ROOT));
+    }
+
+    InstanceNameAllocator(String runId) {
+        this.runId = runId;
+    }
+
+    /**
+     * @param prefix the VM prefix of the cluster
+     * @param taken  tells if a name is already used by a known server or pending agent
+     */
+    String allocate(String prefix, Predicate<String> taken) {
+        String name;
+        do {
+            name = prefix + runId + StringUtils.leftPad(Long.toString(sequence.incrementAndGet(), Character.MAX_RADIX), SEQUENCE_LENGTH, '0');
+        } while (taken.test(name));
+        return name;
+    }
+}
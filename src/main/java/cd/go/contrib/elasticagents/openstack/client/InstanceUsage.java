@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Usage statistics of a single {@link OpenStackInstance} at one point in time.
+ */
+public class InstanceUsage {
+    private final int jobsCompleted;
+    private final int maxCompletedJobs;
+    private final Instant lastJobCompletedAt;
+    private final Duration busyTime;
+    private final boolean busy;
+
+    InstanceUsage(int jobsCompleted, int maxCompletedJobs, Instant lastJobCompletedAt, Duration busyTime, boolean busy) {
+        this.jobsCompleted = jobsCompleted;
+        this.maxCompletedJobs = maxCompletedJobs;
+        this.lastJobCompletedAt = lastJobCompletedAt;
+        this.busyTime = busyTime;
+        this.busy = busy;
+    }
+
+    public int jobsCompleted() {
+        return jobsCompleted;
+    }
+
+    /**
+     * @return the number of jobs this instance may still run, or -1 if there is no limit.
+     */
+    public int jobsRemaining() {
+        return maxCompletedJobs == 0 ? -1 : Math.max(0, maxCompletedJobs - jobsCompleted);
+    }
+
+    /**
+     * @return when the last job completed, or null if no job completed yet.
+     */
+    public Instant lastJobCompletedAt() {
+        return lastJobCompletedAt;
+    }
+
+    /**
+     * @return the time between a server ping first seeing the agent building and completing the job, summed over
+     * all completed jobs. Jobs shorter than a server ping interval may not count.
+     */
+    public Duration busyTime() {
+        return busyTime;
+    }
+
+    /**
+     * @return true if a server ping saw the agent building and the job did not complete yet.
+     */
+    public boolean isBusy() {
+        return busy;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceUsage{" +
+                "jobsCompleted=" + jobsCompleted +
+                ", maxCompletedJobs=" + maxCompletedJobs +
+                ", lastJobCompletedAt=" + lastJobCompletedAt +
+                ", busyTime=" + busyTime +
+                ", busy=" + busy +
+                '}';
+    }
+}
@@ -16,15 +16,32 @@
 package cd.go.contrib.elasticagents.openstack.client;
 
 import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import cd.go.contrib.elasticagents.openstack.utils.Util;
 import com.thoughtworks.go.plugin.api.logging.Logger;
 import org.openstack4j.api.OSClient;
 import org.openstack4j.core.transport.Config;
 import org.openstack4j.model.common.Identifier;
 import org.openstack4j.openstack.OSFactory;
 
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates OpenStack clients from a per-cluster Keystone session, keyed by {@link PluginSettings#uuid()}.
+ * A token is reused until shortly before it expires and is renewed in the background ahead of that.
+ */
 class OpenStackClientFactory {
 
     public static final Logger LOG = Logger.getLoggerFor(OpenStackClientFactory.class);
+    private static final Map<String, OpenStackSession> sessions = new ConcurrentHashMap<>();
+    private static final ExecutorService sessionRefresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "openstack-session-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private Config createConfig(PluginSettings pluginSettings) {
         LOG.debug("createConfig: PluginSettings={} ", pluginSettings);
@@ -37,6 +54,62 @@ class OpenStackClientFactory {
 
     OSClient createClient(PluginSettings pluginSettings) {
         LOG.debug("createClient: PluginSettings={} ", pluginSettings);
+        final OpenStackSession session = sessions.computeIfAbsent(pluginSettings.uuid(), uuid -> new OpenStackSession());
+        final String credentials = credentials(pluginSettings);
+        if (!session.isUsable(credentials, Instant.now())) {
+            synchronized (session) {
+                if (!session.isUsable(credentials, Instant.now())) {
+                    LOG.info("[createClient] uuid=[{}] authenticating, no usable session", pluginSettings.uuid());
+                    final OSClient client = authenticate(pluginSettings);
+                    updateSession(session, client, credentials);
+                    return client;
+                }
+            }
+        } else if (session.shouldRefresh(Instant.now()) && session.startRefresh()) {
+            LOG.debug("[createClient] uuid=[{}] session expires at {}, refreshing in background", pluginSettings.uuid(), session.state().expiresAt());
+            sessionRefresher.execute(() -> {
+                try {
+                    updateSession(session, authenticate(pluginSettings), credentials);
+                } catch (Exception e) {
+                    LOG.warn("[createClient] uuid=[{}] background authentication failed", pluginSettings.uuid(), e);
+                } finally {
+                    session.refreshDone();
+                }
+            });
+        }
+        return clientFromSession(session, pluginSettings);
+    }
+
+    private OSClient clientFromSession(OpenStackSession session, PluginSettings pluginSettings) {
+        final OpenStackSession.State state = session.state();
+        if (state.token() != null) {
+            return OSFactory.clientFromToken(state.token(), createConfig(pluginSettings));
+        }
+        return OSFactory.clientFromAccess(state.access(), createConfig(pluginSettings));
+    }
+
+    private void updateSession(OpenStackSession session, OSClient client, String credentials) {
+        if (client instanceof OSClient.OSClientV3) {
+            session.update(((OSClient.OSClientV3) client).getToken(), credentials, Instant.now());
+        } else {
+            session.update(((OSClient.OSClientV2) client).getAccess(), credentials, Instant.now());
+        }
+    }
+
+    /**
+     * @return SHA-256 of everything the session was authenticated with, so a session is never reused for another
+     * endpoint, user, domain or tenant and the session does not hold the password itself.
+     */
+    static String credentials(PluginSettings pluginSettings) {
+        return Util.sha256Hex(pluginSettings.getOpenstackKeystoneVersion(),
+                pluginSettings.getOpenstackEndpoint(),
+                pluginSettings.getOpenstackUser(),
+                pluginSettings.getOpenstackDomain(),
+                pluginSettings.getOpenstackTenant(),
+                pluginSettings.getOpenstackPassword());
+    }
+
+    private OSClient authenticate(PluginSettings pluginSettings) {
         if (pluginSettings.getOpenstackKeystoneVersion().equals("3")) {
             LOG.debug("OpenStack Authentication V3" + " Endpoint: " + pluginSettings.getOpenstackEndpoint()
                     + " User: " + pluginSettings.getOpenstackUser()
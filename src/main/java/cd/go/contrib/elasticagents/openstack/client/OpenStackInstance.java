@@ -25,8 +25,13 @@ import org.openstack4j.api.Builders;
 import org.openstack4j.model.compute.Server;
 import org.openstack4j.model.compute.builder.ServerCreateBuilder;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import static cd.go.contrib.elasticagents.openstack.Constants.OPENSTACK_USERDATA_ARGS;
 import static cd.go.contrib.elasticagents.openstack.utils.Util.integerFromString;
@@ -36,13 +41,18 @@ public class OpenStackInstance {
 
     public static final Logger LOG = Logger.getLoggerFor(OpenStackInstance.class);
     private final PluginSettings pluginSettings;
-    private final Instant createdAt;
+    private volatile Instant createdAt;
+    private volatile boolean serverDetailsPending;
     private final String environment;
     private final String imageId;
     private final String flavorId;
     private String id;
-    private Integer jobsCompleted = 0;
-    private Integer maxCompletedJobs = 0;
+    private final AtomicInteger jobsCompleted = new AtomicInteger();
+    private final AtomicBoolean terminating = new AtomicBoolean();
+    private final AtomicLong buildingSinceMillis = new AtomicLong();
+    private final AtomicLong lastJobCompletedAtMillis = new AtomicLong();
+    private final LongAdder busyMillis = new LongAdder();
+    private volatile int maxCompletedJobs = 0;
 
     public OpenStackInstance(String id, Date createdAt, String environment, String imageId, String flavorId, PluginSettings pluginSettings) {
         this.id = id;
@@ -55,7 +65,7 @@ public class OpenStackInstance {
 
     static OpenStackInstance create(String instanceName, String imageNameOrId, String flavorNameOrId, String encodedUserData,
                                     String transactionId, PluginSettings pluginSettings, CreateAgentRequest request,
-                                    OpenstackClientWrapper client) throws InstanceNotFoundException {
+                                    OpenstackClientWrapper client) {
         LOG.debug("[{}] [create] job {} cluster {}", transactionId, request.job().represent(), pluginSettings.getOpenstackEndpoint());
 
         HashMap<String, String> mdata = new HashMap<>();
@@ -108,13 +118,17 @@ public class OpenStackInstance {
         }
 
         LOG.debug("create before osclient.compute().servers().boot(scb.build()) : scb.build()={}", scb.build());
+        final Date bootRequestedAt = new Date();
         Server server = client.bootServer(scb.build());
-        LOG.debug("create after osclient.compute().servers().boot(scb.build()) : server.getPowerState()={}", server.getPowerState());
 
-        // create instance properties ( image id, network id, etc... ) and pass to OpenstackInstance()
-        server = client.getServer(server.getId());
-        LOG.info(format("after boot : [{0}] {1} with status: {2}", server.getId(), server.getFlavorId(), server.getStatus()));
-        return new OpenStackInstance(server.getId(), server.getCreated(), request.environment(), server.getImageId(), server.getFlavorId(), pluginSettings);
+        // Nova only answers a boot with the id of the server. The image and flavor ids are already resolved, and the
+        // creation time is taken locally until the next inventory sync fills in the server details.
+        LOG.info(format("after boot : [{0}] {1} with image {2}", server.getId(), flavorNameOrId, imageNameOrId));
+        final OpenStackInstance instance = new OpenStackInstance(server.getId(),
+                server.getCreated() != null ? server.getCreated() : bootRequestedAt, request.environment(),
+                imageNameOrId, flavorNameOrId, pluginSettings);
+        instance.serverDetailsPending = true;
+        return instance;
     }
 
     String environment() {
@@ -125,11 +139,11 @@ public class OpenStackInstance {
         return id;
     }
 
-    public Integer getJobsCompleted() {
-        return jobsCompleted;
+    public int getJobsCompleted() {
+        return jobsCompleted.get();
     }
 
-    public Integer getMaxCompletedJobs() {
+    public int getMaxCompletedJobs() {
         return maxCompletedJobs;
     }
 
@@ -143,18 +157,69 @@ public class OpenStackInstance {
      * indicating if the instance should be terminated.
      *
      * @return Boolean indicating if the instance has executed
-     * more jobs than its configured maximum
+     * its configured maximum of jobs or more, and is not being
+     * terminated already. Concurrent completions terminate the
+     * instance once, until {@link #terminationFailed()}.
      */
     public boolean incrementJobsCompleted() {
-        jobsCompleted++;
-        LOG.info(format("instance {0} has completed {1} jobs", id, jobsCompleted));
-        return maxCompletedJobs != 0 && jobsCompleted >= maxCompletedJobs;
+        final long now = System.currentTimeMillis();
+        final int completed = jobsCompleted.incrementAndGet();
+        lastJobCompletedAtMillis.accumulateAndGet(now, Math::max);
+        final long buildingSince = buildingSinceMillis.getAndSet(0);
+        if (buildingSince != 0) {
+            busyMillis.add(Math.max(0, now - buildingSince));
+        }
+        LOG.info(format("instance {0} has completed {1} jobs", id, completed));
+        final int max = maxCompletedJobs;
+        return max != 0 && completed >= max && terminating.compareAndSet(false, true);
+    }
+
+    /**
+     * Allow the next job completion to terminate the instance again, after terminating it failed.
+     */
+    public void terminationFailed() {
+        terminating.set(false);
+    }
+
+    /**
+     * Remember that a server ping saw the agent of this instance building, which counts as busy time until the
+     * job completes.
+     */
+    public void building() {
+        buildingSinceMillis.compareAndSet(0, System.currentTimeMillis());
+    }
+
+    /**
+     * @return a snapshot of the usage of this instance, read without locking.
+     */
+    public InstanceUsage usage() {
+        final long lastCompleted = lastJobCompletedAtMillis.get();
+        return new InstanceUsage(jobsCompleted.get(), maxCompletedJobs,
+                lastCompleted == 0 ? null : Instant.ofEpochMilli(lastCompleted),
+                Duration.ofMillis(busyMillis.sum()), buildingSinceMillis.get() != 0);
     }
 
     Instant createAt() {
         return createdAt;
     }
 
+    /**
+     * @return true if the instance was built from a boot response and has not been seen in a listing yet
+     */
+    boolean isServerDetailsPending() {
+        return serverDetailsPending;
+    }
+
+    /**
+     * Take the details that the boot response did not have from a listed server.
+     */
+    void serverDetails(Server server) {
+        if (server.getCreated() != null) {
+            createdAt = Instant.ofEpochMilli(server.getCreated().getTime());
+        }
+        serverDetailsPending = false;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -187,7 +252,7 @@ public class OpenStackInstance {
                 ", imageId='" + imageId + '\'' +
                 ", flavorId='" + flavorId + '\'' +
                 ", id='" + id + '\'' +
-                ", jobsCompleted=" + jobsCompleted +
+                ", jobsCompleted=" + jobsCompleted.get() +
                 ", maxCompletedJobs=" + maxCompletedJobs +
                 '}';
     }
@@ -21,8 +21,10 @@ import cd.go.contrib.elasticagents.openstack.model.Agent;
 import cd.go.contrib.elasticagents.openstack.requests.CreateAgentRequest;
 import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
 import cd.go.contrib.elasticagents.openstack.utils.Util;
+import com.google.common.util.concurrent.Striped;
 import com.thoughtworks.go.plugin.api.logging.Logger;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.openstack4j.model.common.ActionResponse;
 import org.openstack4j.model.compute.Server;
@@ -32,9 +34,13 @@ import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static cd.go.contrib.elasticagents.openstack.utils.Util.integerFromString;
 import static java.text.MessageFormat.format;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -43,14 +49,39 @@ import static org.apache.commons.lang3.StringUtils.stripToEmpty;
 public class OpenStackInstances {
 
     public static final Logger LOG = Logger.getLoggerFor(OpenStackInstances.class);
+    static final Duration FULL_SYNC_PERIOD = Duration.ofMinutes(15);
+    static final Duration SYNC_OVERLAP = Duration.ofMinutes(2);
+    static final int CREATE_THREADS = 4;
+    static final int CREATE_QUEUE_SIZE = 50;
+    static final Duration IDLE_KEEP_DEMAND_PERIOD = Duration.ofMinutes(30);
+    static final int TERMINATE_THREADS = 8;
+    static final int INSTANCE_LOCK_STRIPES = 64;
+    static final Duration INITIAL_REFRESH_TIMEOUT = Duration.ofMinutes(2);
+    static final List<Duration> TERMINATE_RETRY_DELAYS = Collections.unmodifiableList(Arrays.asList(
+            Duration.ofSeconds(5), Duration.ofSeconds(20), Duration.ofSeconds(80)));
+    private static final InstanceNameAllocator NAME_ALLOCATOR = new InstanceNameAllocator();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "openstack-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final String uuid;
     private final Map<String, OpenStackInstance> instances = new ConcurrentHashMap<>();
     private final Map<String, PendingAgent> pendingAgents = new ConcurrentHashMap<>();
+    private final ProfileIndex profileIndex = new ProfileIndex();
+    private final Cache<String, Integer> idleKeepDemand = new Cache2kBuilder<String, Integer>() {
+    }.expireAfterWrite(IDLE_KEEP_DEMAND_PERIOD.toMinutes(), TimeUnit.MINUTES).entryCapacity(1000).build();
+    private final ServerInventory inventory = new ServerInventory();
+    private final Striped<Lock> instanceLocks = Striped.lock(INSTANCE_LOCK_STRIPES);
+    private final AtomicBoolean refreshRunning = new AtomicBoolean(false);
+    private final AtomicBoolean initialRefreshStarted = new AtomicBoolean(false);
+    private final CompletableFuture<Void> initialRefresh = new CompletableFuture<>();
     private final OpenstackClientWrapper clientWrapper;
+    private final ThreadPoolExecutor createExecutor;
+    private final ThreadPoolExecutor terminateExecutor;
     private PluginSettings pluginSettings;
-    private boolean refreshed = false;
-    private boolean refreshRunning = false;
+    private volatile boolean refreshed = false;
 
     public OpenStackInstances(PluginSettings pluginSettings) {
         LOG.debug("new OpenStackInstances, PluginSettings:[{}] ", pluginSettings);
@@ -62,12 +93,45 @@ public class OpenStackInstances {
         this.pluginSettings = pluginSettings;
         this.clientWrapper = new OpenstackClientWrapper(pluginSettings);
         this.uuid = pluginSettings.uuid();
+        this.createExecutor = newCreateExecutor(uuid);
+        this.terminateExecutor = newTerminateExecutor(uuid);
     }
 
     public OpenStackInstances(PluginSettings pluginSettings, OpenstackClientWrapper client) {
         this.pluginSettings = pluginSettings;
         clientWrapper = client;
         this.uuid = pluginSettings.uuid();
+        this.createExecutor = newCreateExecutor(uuid);
+        this.terminateExecutor = newTerminateExecutor(uuid);
+    }
+
+    /**
+     * Bounded pool for background boots. When the queue is full the boot runs on the request thread,
+     * which slows down the GoCD server instead of piling up work.
+     */
+    private static ThreadPoolExecutor newCreateExecutor(String uuid) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(CREATE_THREADS, CREATE_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CREATE_QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "openstack-create-agent-" + uuid);
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Caps the number of deletes in flight against the cluster.
+     */
+    private static ThreadPoolExecutor newTerminateExecutor(String uuid) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(TERMINATE_THREADS, TERMINATE_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "openstack-terminate-agent-" + uuid);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public PluginSettings getPluginSettings() {
@@ -76,6 +140,7 @@ public class OpenStackInstances {
 
     public void setPluginSettings(PluginSettings pluginSettings) {
         this.pluginSettings = pluginSettings;
+        clientWrapper.setMaxConcurrentBoots(pluginSettings.getOpenstackMaxConcurrentBoots());
     }
 
     /**
@@ -100,35 +165,186 @@ public class OpenStackInstances {
         op_instance.setMaxCompletedJobs(request.properties().get(Constants.AGENT_JOB_LIMIT_MAX));
         LOG.info("[create agent] properties: {}", request.properties());
 
+        inventory.booted(op_instance.id());
         register(op_instance);
         addPending(op_instance, request);
         return op_instance;
     }
 
+    /**
+     * Accept a request for creation of an agent instance and boot it in the background.
+     * <p>
+     * A pending agent keyed by the instance name is recorded before returning, so that following create-agent
+     * requests see it. Before the first listing of the cluster, the boot checks that the instance name is not taken.
+     * Once booted the pending agent is replaced by one keyed by the instance id. A failed boot is reported
+     * as a server health message.
+     * <p>
+     * Every request is booted on its own, as soon as a boot permit is free. Identical requests are not coalesced
+     * into one Nova multi-create (min_count/max_count): all servers of a multi-create share the metadata of one
+     * request, while each server needs the auto-register key of its own request to register as an agent.
+     *
+     * @param request       the request object
+     * @param transactionId used to trace transaction in logs.
+     * @param pluginRequest the plugin request object
+     */
+    public void createAsync(CreateAgentRequest request, String transactionId, PluginRequest pluginRequest) throws ImageNotFoundException {
+        LOG.info("[{}] [create Agent async] Processing request for {}", transactionId, request.job().represent());
+        final String imageId = clientWrapper.getImageId(getImageIdOrName(request.properties()), transactionId);
+        final String flavorId = clientWrapper.getFlavorId(getFlavorIdOrName(request.properties()), transactionId);
+        final PendingBoot boot = new PendingBoot(allocateInstanceName(), imageId, flavorId,
+                getEncodedUserData(request.properties()), request, transactionId, pluginRequest);
+        putPending(boot.instanceName, boot.pendingAgent);
+        createExecutor.execute(() -> boot(boot));
+    }
+
+    /**
+     * Names are allocated locally and checked against the inventory. Only before the first listing of the cluster,
+     * when the inventory is still empty, the name is checked with OpenStack.
+     */
+    private void checkInstanceName(PendingBoot boot) {
+        if (inventory.lastFullSync() != null || !clientWrapper.instanceNameExists(boot.instanceName)) {
+            return;
+        }
+        final String previousName = boot.instanceName;
+        boot.instanceName = generateInstanceName();
+        withInstanceLock(boot.instanceName, () -> pendingAgents.put(boot.instanceName, boot.pendingAgent));
+        withInstanceLock(previousName, () -> pendingAgents.remove(previousName));
+    }
+
+    private void boot(PendingBoot boot) {
+        final CreateAgentRequest request = boot.request;
+        try {
+            checkInstanceName(boot);
+            OpenStackInstance op_instance = OpenStackInstance.create(boot.instanceName, boot.imageId, boot.flavorId,
+                    boot.encodedUserData, boot.transactionId, pluginSettings, request, clientWrapper);
+            op_instance.setMaxCompletedJobs(request.properties().get(Constants.AGENT_JOB_LIMIT_MAX));
+            inventory.booted(op_instance.id());
+            register(op_instance);
+            addPending(op_instance, request);
+            boot.pluginRequest.removeServerHealthMessage(createFailedMessageId());
+            LOG.info("[{}] [create Agent async] Booted instance {} for {}", boot.transactionId, op_instance.id(), request.job().represent());
+        } catch (Exception e) {
+            final String message = format("Failed to create agent instance {0} for job {1}: {2}",
+                    boot.instanceName, request.job().represent(), e.getLocalizedMessage());
+            LOG.error("[{}] [create Agent async] {}", boot.transactionId, message);
+            boot.pluginRequest.addServerHealthMessage(createFailedMessageId(), ServerHealthMessages.Type.ERROR, message);
+        } finally {
+            removePending(boot.instanceName);
+        }
+    }
+
+    private String createFailedMessageId() {
+        return "CreateAgentFailed-" + uuid;
+    }
+
+    /**
+     * A create-agent request accepted by {@link #createAsync} and waiting for its boot.
+     */
+    private static class PendingBoot {
+        private final String imageId;
+        private final String flavorId;
+        private final String encodedUserData;
+        private final CreateAgentRequest request;
+        private final String transactionId;
+        private final PluginRequest pluginRequest;
+        private final PendingAgent pendingAgent;
+        private volatile String instanceName;
+
+        private PendingBoot(String instanceName, String imageId, String flavorId, String encodedUserData,
+                            CreateAgentRequest request, String transactionId, PluginRequest pluginRequest) {
+            this.instanceName = instanceName;
+            this.imageId = imageId;
+            this.flavorId = flavorId;
+            this.encodedUserData = encodedUserData;
+            this.request = request;
+            this.transactionId = transactionId;
+            this.pluginRequest = pluginRequest;
+            this.pendingAgent = new PendingAgent(instanceName, imageId, flavorId, request);
+        }
+    }
+
     /**
      * This message is sent after plugin initialization time so that the plugin may connect to the cloud provider
      * and fetch a list of all instances that have been spun up by this plugin (before the server was shut down).
      * This call should ideally remember if the agent instances are refreshed from the cluster,
      * and do nothing if instances were previously refreshed.
+     * <p>
+     * Only one refresh runs at a time. It does not block readers of this cluster's state, which only see
+     * the inventory snapshot swapped in after each listing. A caller arriving while another refresh runs does not
+     * wait for it, and is told that it did not refresh, so that it does not act on the state from before.
      *
      * @param pluginRequest the plugin request object
+     * @return true if this call refreshed the instances, false if it was skipped because a refresh was running
+     * @throws RuntimeException if the instances could not be listed, after reporting it as a health message
      */
-    public synchronized void refreshAll(PluginRequest pluginRequest) {
+    public boolean refreshAll(PluginRequest pluginRequest) {
         LOG.debug("[refreshAll]: [{}] uuid=[{}] clusterURL={}, refreshRunning=[{}] refreshed=[{}]",
-                this, uuid, pluginSettings.getOpenstackEndpoint(), refreshRunning, refreshed);
-        if (refreshRunning) {
+                this, uuid, pluginSettings.getOpenstackEndpoint(), refreshRunning.get(), refreshed);
+        if (!refreshRunning.compareAndSet(false, true)) {
             LOG.info("[refreshAll] Refresh skipped already running in other thread");
+            return false;
+        }
+        try {
+            doRefreshAll(pluginRequest);
+            initialRefresh.complete(null);
+            return true;
+        } finally {
+            refreshRunning.set(false);
+        }
+    }
+
+    /**
+     * Make sure the instances of this cluster were refreshed once since the plugin started. The first caller runs
+     * the refresh, other callers wait for a refresh to succeed, but for at most {@link #INITIAL_REFRESH_TIMEOUT}.
+     * <p>
+     * When the refresh fails, its caller continues without it like on a timeout, the failure is reported as a
+     * health message, and the next caller runs the refresh again.
+     *
+     * @param pluginRequest the plugin request object
+     */
+    public void awaitInitialRefresh(PluginRequest pluginRequest) {
+        if (initialRefresh.isDone()) {
             return;
         }
-        refreshRunning = true;
+        if (initialRefreshStarted.compareAndSet(false, true)) {
+            try {
+                refreshAll(pluginRequest);
+            } catch (RuntimeException e) {
+                initialRefreshStarted.set(false);
+                LOG.warn("[awaitInitialRefresh] uuid=[{}] initial refresh failed, continuing without it: {}", uuid, e.getLocalizedMessage());
+                return;
+            }
+        }
+        try {
+            initialRefresh.get(INITIAL_REFRESH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("[awaitInitialRefresh] uuid=[{}] initial refresh did not end within {} seconds, continuing without it",
+                    uuid, INITIAL_REFRESH_TIMEOUT.getSeconds());
+        } catch (ExecutionException e) {
+            LOG.warn("[awaitInitialRefresh] uuid=[{}] initial refresh failed: {}", uuid, e.getCause().getLocalizedMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void doRefreshAll(PluginRequest pluginRequest) {
         final long startTimeMillis = System.currentTimeMillis();
         LOG.debug("[refreshAll]: [{}] uuid=[{}] clusterURL={}, startTimeMillis=[{}] refreshed=[{}], ",
                 this, uuid, pluginSettings.getOpenstackEndpoint(), startTimeMillis, refreshed);
+        try {
+            syncInventory();
+        } catch (RuntimeException e) {
+            pluginRequest.addServerHealthMessage(uuid, ServerHealthMessages.Type.ERROR, e.getLocalizedMessage());
+            LOG.warn("[refreshAll]: [{}] uuid=[{}] clusterURL={}, failed to list instances {}",
+                    this, uuid, pluginSettings.getOpenstackEndpoint(), e.getLocalizedMessage());
+            throw e;
+        }
+        clientWrapper.refreshFlavorsIfDue(uuid);
         if (!refreshed) {
             try {
                 Agents agents = pluginRequest.listAgents();
-                List<Server> allInstances = clientWrapper.listServers(pluginSettings.getOpenstackVmPrefix());
-                for (Server server : allInstances) {
+                List<String> unregistered = new ArrayList<>();
+                for (Server server : inventory.servers()) {
                     if (agents.containsAgentWithId(server.getId())) {
                         LOG.debug("[refreshAll] add instance that is already registered id=[{}]", server.getId());
                         register(new OpenStackInstance(server.getId(), server.getCreated(),
@@ -137,23 +353,23 @@ public class OpenStackInstances {
                     } else {
                         LOG.debug("[refreshAll] [{}] uuid=[{}] clusterURL={}, terminate instance that is not registered agent id=[{}]",
                                 this, uuid, pluginSettings.getOpenstackEndpoint(), server.getId());
-                        clientWrapper.terminate(server.getId());
+                        unregistered.add(server.getId());
                     }
                 }
+                terminate(unregistered);
                 refreshed = true;
             } catch (Exception e) {
-                refreshRunning = false;
                 pluginRequest.addServerHealthMessage(uuid, ServerHealthMessages.Type.ERROR, e.getLocalizedMessage());
                 LOG.debug("[refreshAll]: [{}] uuid=[{}] clusterURL={}, startTimeMillis=[{}] refreshed=[{}], ",
                         this, uuid, pluginSettings.getOpenstackEndpoint(), startTimeMillis, refreshed);
-                return;
+                throw new IllegalStateException("Failed to register the instances of cluster " + uuid + ": "
+                        + e.getLocalizedMessage(), e);
             }
         }
         final long durationInMillis = System.currentTimeMillis() - startTimeMillis;
         LOG.info("[refreshAll] [{}] uuid=[{}] clusterURL={}, refreshing instances took {} millis",
                 this, uuid, pluginSettings.getOpenstackEndpoint(), durationInMillis);
         refreshPending(pluginRequest);
-        refreshRunning = false;
     }
 
     /**
@@ -162,40 +378,80 @@ public class OpenStackInstances {
      * @param instanceId the elastic agent id, which is the same as OpenStack ID
      * @return if the agent instance is terminated.
      */
-    public synchronized boolean terminate(String instanceId) {
-        boolean terminated = false;
-        OpenStackInstance opInstance = instances.get(instanceId);
-        try {
-            if (opInstance == null) {
+    public boolean terminate(String instanceId) {
+        return terminate(Collections.singletonList(instanceId)).getOrDefault(instanceId, false);
+    }
+
+    /**
+     * Terminate several OpenStack instances at once, with at most {@link #TERMINATE_THREADS} deletes in flight
+     * against this cluster. A failed delete is not retried inline, but scheduled again after each of
+     * {@link #TERMINATE_RETRY_DELAYS}.
+     *
+     * @param instanceIds the elastic agent ids, which are the same as OpenStack IDs
+     * @return for every instance id, whether the instance was terminated without a retry.
+     */
+    public Map<String, Boolean> terminate(Collection<String> instanceIds) {
+        Map<String, Future<Boolean>> deletes = new LinkedHashMap<>();
+        for (String instanceId : new LinkedHashSet<>(instanceIds)) {
+            final OpenStackInstance removed = withInstanceLock(instanceId, () -> {
+                final OpenStackInstance instance = instances.remove(instanceId);
+                if (instance != null) {
+                    profileIndex.removeInstance(instance);
+                }
+                return instance;
+            });
+            if (removed == null) {
                 LOG.warn("[terminate] Requested to terminate an instance [{}] that does not exist in plugin state," +
                         " trying anyway.", instanceId);
             }
-            LOG.info("[terminate] OpenStack instance [{}]", instanceId);
-            ActionResponse response = clientWrapper.terminate(instanceId);
-            if (response.isSuccess()) {
-                terminated = true;
-            } else {
-                try {
-                    final String message = clientWrapper.getServer(instanceId).getFault().getMessage();
-                    LOG.warn("[terminate] Failed to terminate instance [{}] with message [{}], trying again.",
-                            instanceId, message);
-                    response = clientWrapper.terminate(instanceId);
-                    if (response.isSuccess()) {
-                        terminated = true;
-                        LOG.info("[terminate] Succeeded to terminate instance [{}] second time.", instanceId);
-                    } else {
-                        LOG.error("[terminate] Failed to terminate instance [{}] second time.", instanceId);
-                    }
-                } catch (InstanceNotFoundException e) {
-                    LOG.warn("[terminate] Failed to get instance [{}].", instanceId);
-                }
+            deletes.put(instanceId, terminateExecutor.submit(() -> delete(instanceId, 0)));
+        }
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Boolean>> delete : deletes.entrySet()) {
+            boolean terminated = false;
+            try {
+                terminated = delete.getValue().get();
+            } catch (ExecutionException e) {
+                LOG.warn("[terminate] Exception when trying to terminate an instance {}, {}",
+                        delete.getKey(), e.getCause().getLocalizedMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            instances.remove(instanceId);
+            results.put(delete.getKey(), terminated);
+        }
+        LOG.info("[terminate] uuid=[{}] terminated {} of {} instances", uuid,
+                results.values().stream().filter(Boolean::booleanValue).count(), results.size());
+        return results;
+    }
+
+    private boolean delete(String instanceId, int attempt) {
+        try {
+            LOG.info("[terminate] OpenStack instance [{}], attempt {}", instanceId, attempt + 1);
+            final ActionResponse response = clientWrapper.terminate(instanceId);
+            if (response.isSuccess() || response.getCode() == 404) {
+                inventory.remove(instanceId);
+                return true;
+            }
+            LOG.warn("[terminate] Failed to terminate instance [{}] with fault [{}] and message [{}].",
+                    instanceId, response.getFault(), inventory.faultMessage(instanceId));
         } catch (RuntimeException ex) {
             LOG.warn("[terminate] Exception when trying to terminate an instance {}, {}",
                     instanceId, ex.getLocalizedMessage());
         }
-        return terminated;
+        scheduleDeleteRetry(instanceId, attempt);
+        return false;
+    }
+
+    private void scheduleDeleteRetry(String instanceId, int attempt) {
+        if (attempt >= TERMINATE_RETRY_DELAYS.size()) {
+            LOG.error("[terminate] Giving up on terminating instance [{}] after {} attempts.", instanceId, attempt + 1);
+            return;
+        }
+        final Duration delay = TERMINATE_RETRY_DELAYS.get(attempt);
+        LOG.info("[terminate] Trying to terminate instance [{}] again in {} seconds.", instanceId, delay.getSeconds());
+        SCHEDULER.schedule(() -> terminateExecutor.execute(() -> delete(instanceId, attempt + 1)),
+                delay.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     public PendingAgent[] getPendingAgents() {
@@ -309,6 +565,7 @@ public class OpenStackInstances {
         Agents allAgents;
         try {
             allAgents = pluginRequest.listAgents();
+            recordBuilding(allAgents);
             Agents expiredAgents = fetchExpiredAgents(allAgents);
             Collection<Agent> agentsToDisable = expiredAgents.findAgentsToDisable();
             LOG.debug("[performCleanup] agentsToDisable={}", agentsToDisable);
@@ -318,9 +575,7 @@ public class OpenStackInstances {
             Collection<Agent> toBeDeleted = allAgents.findAgentsToTerminate();
             LOG.debug("[performCleanup] toBeDeleted={}", toBeDeleted);
 
-            for (Agent agent : toBeDeleted) {
-                terminate(agent.elasticAgentId());
-            }
+            terminate(toBeDeleted.stream().map(Agent::elasticAgentId).collect(Collectors.toList()));
             pluginRequest.deleteAgents(toBeDeleted);
 
             LOG.info("[performCleanup] clusterURL={}, refreshing instances took {} millis",
@@ -330,6 +585,52 @@ public class OpenStackInstances {
         }
     }
 
+    /**
+     * Start the busy time of the instances whose agents are building, see {@link OpenStackInstance#usage()}.
+     */
+    private void recordBuilding(Agents agents) {
+        for (Agent agent : agents.agents()) {
+            if (agent.buildState() == Agent.BuildState.Building) {
+                final OpenStackInstance instance = find(agent.elasticAgentId());
+                if (instance != null) {
+                    instance.building();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remember that a job needed an agent of this profile. While a profile has demand, up to its number of idle agents
+     * to keep are kept beyond their TTL, see {@link #fetchExpiredAgents(Agents)}. No instances are booted for it, an
+     * agent can only register with the auto-register key of a create-agent request.
+     *
+     * @return the number of idle agents to keep of the profile, 0 if none is configured.
+     */
+    public int recordDemand(Map<String, String> properties, String environment, String imageId, String flavorId) {
+        final int idleAgentsToKeep = integerFromString(properties.get(Constants.OPENSTACK_IDLE_AGENTS_TO_KEEP));
+        final String key = ProfileIndex.key(environment, imageId, flavorId);
+        if (idleAgentsToKeep > 0) {
+            idleKeepDemand.put(key, idleAgentsToKeep);
+        } else {
+            idleKeepDemand.remove(key);
+        }
+        return idleAgentsToKeep;
+    }
+
+    /**
+     * Returns the ids of instances with the given environment, image id and flavor id.
+     */
+    public Set<String> instanceIdsMatching(String environment, String imageId, String flavorId) {
+        return profileIndex.instanceIds(ProfileIndex.key(environment, imageId, flavorId));
+    }
+
+    /**
+     * Returns the pending agents with the given environment, image id and flavor id.
+     */
+    public Collection<PendingAgent> pendingAgentsMatching(String environment, String imageId, String flavorId) {
+        return profileIndex.pendingAgents(ProfileIndex.key(environment, imageId, flavorId));
+    }
+
     public String getImageId(Map<String, String> properties, String transactionId) throws ImageNotFoundException {
         return clientWrapper.getImageId(getImageIdOrName(properties), transactionId);
     }
@@ -347,11 +648,59 @@ public class OpenStackInstances {
     }
 
     void register(OpenStackInstance instance) {
-        instances.put(instance.id(), instance);
+        withInstanceLock(instance.id(), () -> {
+            final OpenStackInstance previous = instances.put(instance.id(), instance);
+            if (previous != null) {
+                profileIndex.removeInstance(previous);
+            }
+            profileIndex.addInstance(instance);
+            return previous;
+        });
     }
 
     void addPending(OpenStackInstance pendingInstance, CreateAgentRequest request) {
-        pendingAgents.putIfAbsent(pendingInstance.id(), new PendingAgent(pendingInstance, request));
+        final PendingAgent agent = new PendingAgent(pendingInstance, request);
+        withInstanceLock(pendingInstance.id(), () -> {
+            if (pendingAgents.putIfAbsent(pendingInstance.id(), agent) == null) {
+                profileIndex.addPending(agent);
+            }
+            return null;
+        });
+    }
+
+    private void putPending(String id, PendingAgent agent) {
+        withInstanceLock(id, () -> {
+            final PendingAgent previous = pendingAgents.put(id, agent);
+            if (previous != null) {
+                profileIndex.removePending(previous);
+            }
+            profileIndex.addPending(agent);
+            return previous;
+        });
+    }
+
+    private PendingAgent removePending(String id) {
+        return withInstanceLock(id, () -> {
+            final PendingAgent removed = pendingAgents.remove(id);
+            if (removed != null) {
+                profileIndex.removePending(removed);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Mutations of an instance or pending agent and its profile index entry are serialized per instance id,
+     * so that they stay consistent. Reads go to the concurrent maps directly and never take a lock.
+     */
+    private <T> T withInstanceLock(String instanceId, Supplier<T> mutation) {
+        final Lock lock = instanceLocks.get(instanceId);
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
     }
 
     String getUserData(Map<String, String> properties) {
@@ -370,30 +719,32 @@ public class OpenStackInstances {
             startTimeMillis = System.currentTimeMillis();
             Agents registeredAgents = pluginRequest.listAgents();
             for (Agent agent : registeredAgents.agents()) {
-                PendingAgent removed = pendingAgents.remove(agent.elasticAgentId());
+                PendingAgent removed = removePending(agent.elasticAgentId());
                 if (removed != null)
                     LOG.info(format("[refresh-pending] Agent {0} is registered with GoCD server and is no longer pending", removed));
             }
-            for (Iterator<Map.Entry<String, PendingAgent>> iter = pendingAgents.entrySet().iterator(); iter.hasNext(); ) {
-                Map.Entry<String, PendingAgent> entry = iter.next();
+            List<String> toBeTerminated = new ArrayList<>();
+            for (Map.Entry<String, PendingAgent> entry : pendingAgents.entrySet()) {
                 try {
                     String instanceId = entry.getKey();
-                    if (!doesInstanceExist(instanceId)) {
+                    if (entry.getValue().isBooting()) {
+                        LOG.debug(format("[refresh-pending] Pending agent {0} is still booting", instanceId));
+                    } else if (!inventory.contains(instanceId)) {
                         LOG.warn(format("[refresh-pending] Pending agent {0} has disappeared from OpenStack", instanceId));
-                        iter.remove();
-                    } else if (isInstanceInErrorState(instanceId)) {
+                        removePending(instanceId);
+                    } else if (inventory.isInErrorState(instanceId)) {
                         LOG.error(format("[refresh-pending] Pending agent instance {0} is in ERROR state on OpenStack", instanceId));
-                        iter.remove();
+                        removePending(instanceId);
                         if (pluginSettings.getOpenstackDeleteErrorInstances()) {
                             LOG.error(format("[refresh-pending] Deleting pending agent ERROR instance {0}", instanceId));
-                            terminate(instanceId);
+                            toBeTerminated.add(instanceId);
                         }
                     } else if (hasPendingAgentTimedOut(instanceId)) {
                         final String message = format("Pending agent {0} has been pending for too long, terminating instance", instanceId);
                         LOG.warn("[refresh-pending] " + message);
                         pluginRequest.addServerHealthMessage("AgentTimedOut-" + instanceId, ServerHealthMessages.Type.WARNING, message);
-                        iter.remove();
-                        terminate(instanceId);
+                        removePending(instanceId);
+                        toBeTerminated.add(instanceId);
                     } else {
                         LOG.debug(format("[refresh-pending] Pending agent {0} is still pending", instanceId));
                     }
@@ -401,6 +752,7 @@ public class OpenStackInstances {
                     LOG.error("Failed to check instance state", e);
                 }
             }
+            terminate(toBeTerminated);
             LOG.info(MessageFormat.format("[refresh-pending] Total pending agent count = {0}", pendingAgents.size()));
 
             terminateUnregisteredInstances(pluginRequest.listAgents());
@@ -421,24 +773,59 @@ public class OpenStackInstances {
         return StringUtils.isNotBlank(properties.get(Constants.OPENSTACK_FLAVOR_ID_ARGS)) ? properties.get(Constants.OPENSTACK_FLAVOR_ID_ARGS) : pluginSettings.getOpenstackFlavor();
     }
 
+    /**
+     * Allocate an instance name that is not taken. Only before the first listing of the cluster, when the local
+     * view cannot tell which names are taken, OpenStack is asked as well.
+     */
     private String generateInstanceName() {
-        String instanceName = pluginSettings.getOpenstackVmPrefix() + RandomStringUtils.insecure().nextAlphanumeric(12).toLowerCase();
-        while (clientWrapper.instanceNameExists(instanceName)) {
-            instanceName = pluginSettings.getOpenstackVmPrefix() + RandomStringUtils.insecure().nextAlphanumeric(12).toLowerCase();
+        String instanceName = allocateInstanceName();
+        if (inventory.lastFullSync() == null) {
+            while (clientWrapper.instanceNameExists(instanceName)) {
+                instanceName = allocateInstanceName();
+            }
         }
         return instanceName;
     }
 
-    private boolean doesInstanceExist(String id) {
-        try {
-            return clientWrapper.getServer(id) != null;
-        } catch (InstanceNotFoundException e) {
-            return false;
+    private String allocateInstanceName() {
+        return NAME_ALLOCATOR.allocate(pluginSettings.getOpenstackVmPrefix(),
+                name -> pendingAgents.containsKey(name) || inventory.containsName(name));
+    }
+
+    /**
+     * Update the server inventory with a single listing of instances with the VM prefix.
+     * <p>
+     * Only servers changed since the last sync are listed, using Nova's changes-since filter. The window overlaps
+     * the previous sync to allow for clock skew with the cluster. A full listing is done every
+     * {@link #FULL_SYNC_PERIOD} to correct any drift.
+     */
+    void syncInventory() {
+        final Instant startedAt = Instant.now();
+        final Instant lastSync = inventory.lastSync();
+        final Instant lastFullSync = inventory.lastFullSync();
+        if (lastSync == null || lastFullSync.plus(FULL_SYNC_PERIOD).isBefore(startedAt)) {
+            LOG.debug("[syncInventory] uuid=[{}] full listing, last full sync at [{}]", uuid, lastFullSync);
+            inventory.replace(clientWrapper.listServers(pluginSettings.getOpenstackVmPrefix()), startedAt);
+        } else {
+            final Instant since = lastSync.minus(SYNC_OVERLAP);
+            LOG.debug("[syncInventory] uuid=[{}] listing changes since [{}]", uuid, since);
+            inventory.merge(clientWrapper.listServersChangedSince(pluginSettings.getOpenstackVmPrefix(), since), startedAt);
         }
+        fillServerDetails();
     }
 
-    private boolean isInstanceInErrorState(String id) {
-        return clientWrapper.isInstanceInErrorState(id);
+    /**
+     * Complete instances built from a boot response with the details of their listed server.
+     */
+    private void fillServerDetails() {
+        for (OpenStackInstance instance : instances.values()) {
+            if (instance.isServerDetailsPending()) {
+                final Server server = inventory.get(instance.id());
+                if (server != null) {
+                    instance.serverDetails(server);
+                }
+            }
+        }
     }
 
     private boolean hasPendingAgentTimedOut(String id) {
@@ -464,8 +851,7 @@ public class OpenStackInstances {
      * @param knownAgents the list of all the agents
      */
     private void terminateUnregisteredInstances(Agents knownAgents) {
-        Duration period = pluginSettings.getAgentTTLMinPeriod();
-        List<Server> allInstances = clientWrapper.listServers(pluginSettings.getOpenstackVmPrefix());
+        List<Server> allInstances = new ArrayList<>(inventory.servers());
         String allInstancesAsString = allInstances.stream()
                 .map(Server::getName)
                 .collect(Collectors.joining(","));
@@ -473,23 +859,26 @@ public class OpenStackInstances {
         LOG.debug("[terminateUnregisteredInstances]: [{}] uuid=[{}] clusterURL={}, startTimeMillis=[{}] allInstances.size=[{}] [{}], ",
                 this, uuid, pluginSettings.getOpenstackEndpoint(), startTimeMillis, allInstances.size(), allInstancesAsString);
 
+        List<String> toBeTerminated = new ArrayList<>();
         for (Server server : allInstances) {
             final String instanceId = server.getId();
             if (knownAgents.containsAgentWithId(instanceId)) {
                 LOG.debug("[terminateUnregisteredInstances]: [{}] uuid=[{}] keeping known agent instance=[{}]",
                         this, uuid, server.getName());
-            } else if (hasPendingInstance(instanceId)) {
+            } else if (hasPendingInstance(instanceId) || hasPendingInstance(server.getName())) {
                 LOG.debug("[terminateUnregisteredInstances]: [{}] uuid=[{}] keeping pending agent instance=[{}]",
                         this, uuid, server.getName());
             } else {
                 LOG.debug("[terminateUnregisteredInstances]: [{}] uuid=[{}] terminating agent instance=[{}], since instance not registered nor pending.", this, uuid, server.getName());
-                final boolean terminated = terminate(instanceId);
-                if (!terminated) {
-                    LOG.warn("[terminateUnregisteredInstances]: [{}] uuid=[{}] Exception when terminating agent instance=[{}].",
-                            this, uuid, server.getName());
-                }
+                toBeTerminated.add(instanceId);
             }
         }
+        terminate(toBeTerminated).forEach((instanceId, terminated) -> {
+            if (!terminated) {
+                LOG.warn("[terminateUnregisteredInstances]: [{}] uuid=[{}] Exception when terminating agent instance=[{}].",
+                        this, uuid, instanceId);
+            }
+        });
     }
 
     private boolean hasPendingInstance(String instanceId) {
@@ -500,6 +889,8 @@ public class OpenStackInstances {
      * This message is sent from the {@link cd.go.contrib.elasticagents.openstack.executors.ServerPingRequestExecutor}
      * to filter out any expired agents. The TTL may be configurable and
      * set via the {@link PluginSettings} instance that is passed in through constructor.
+     * Idle agents of a profile with recent demand are not expired while there are no more than its number of idle agents to keep
+     * of idle agents.
      *
      * @param agents the list of all the agents
      * @return a list of agent instances which were created based on {@link PluginSettings#getAgentTTLMinPeriod()}
@@ -508,6 +899,13 @@ public class OpenStackInstances {
     private Agents fetchExpiredAgents(Agents agents) {
         LOG.debug("[instancesCreatedAfterTTL] uuid=[{}] agentTTLMin: [{}] agentTTLMax: [{}] agents.agents().size(): [{}]",
                 uuid, pluginSettings.getAgentTTLMinPeriod().toMinutes(), pluginSettings.getAgentTTLMax(), agents.agents().size());
+        Map<String, Integer> idleAgentsByProfile = new HashMap<>();
+        for (Agent agent : agents.agents()) {
+            OpenStackInstance instance = instances.get(agent.elasticAgentId());
+            if (instance != null && agent.agentState() == Agent.AgentState.Idle) {
+                idleAgentsByProfile.merge(ProfileIndex.key(instance), 1, Integer::sum);
+            }
+        }
         List<Agent> oldAgents = new ArrayList<>();
         for (Agent agent : agents.agents()) {
 
@@ -522,6 +920,15 @@ public class OpenStackInstances {
             Instant expireDate = instance.createAt().plus(minutesTTL, MINUTES);
             LOG.debug("[instancesCreatedAfterTTL] uuid=[{}] Agent: [{}] with minutesTTL: [{}]", uuid, agent.elasticAgentId(), minutesTTL);
             if (expireDate.isBefore(Instant.now())) {
+                if (agent.agentState() == Agent.AgentState.Idle) {
+                    final String key = ProfileIndex.key(instance);
+                    final Integer idleAgentsToKeep = idleKeepDemand.peek(key);
+                    if (idleAgentsToKeep != null && idleAgentsByProfile.get(key) <= idleAgentsToKeep) {
+                        LOG.info("[instancesCreatedAfterTTL] uuid=[{}] Agent: [{}] kept as one of [{}] idle agents to keep", uuid, agent.elasticAgentId(), idleAgentsToKeep);
+                        continue;
+                    }
+                    idleAgentsByProfile.merge(key, -1, Integer::sum);
+                }
                 LOG.info("[instancesCreatedAfterTTL] uuid=[{}] Agent: [{}] to be terminated with minutesTTL: [{}]", uuid, agent.elasticAgentId(), minutesTTL);
                 oldAgents.add(agent);
             }
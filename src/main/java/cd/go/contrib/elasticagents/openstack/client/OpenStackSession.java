@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.openstack4j.model.identity.v2.Access;
+import org.openstack4j.model.identity.v3.Token;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Authenticated Keystone session of one cluster.
+ * <p>
+ * Only the token (V3) or access (V2) is kept, since openstack4j binds an OSClient to the thread that created it.
+ * Every caller builds its own client from the shared token, which does not need a round trip to Keystone.
+ */
+class OpenStackSession {
+    static final Duration REFRESH_AHEAD = Duration.ofMinutes(10);
+    static final Duration EXPIRY_MARGIN = Duration.ofMinutes(1);
+    static final Duration DEFAULT_LIFETIME = Duration.ofMinutes(30);
+
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile State state;
+
+    /**
+     * Token or access of one authentication, published as a whole so that readers never mix the token of one
+     * authentication with the expiry or credentials of another.
+     */
+    record State(Token token, Access access, Instant expiresAt, String credentials) {
+    }
+
+    void update(Token token, String credentials, Instant now) {
+        this.state = new State(token, null, expiry(token.getExpires(), now), credentials);
+    }
+
+    void update(Access access, String credentials, Instant now) {
+        this.state = new State(null, access, expiry(access.getToken() != null ? access.getToken().getExpires() : null, now), credentials);
+    }
+
+    /**
+     * @return true if the session can serve requests for the given credentials without authenticating again.
+     */
+    boolean isUsable(String credentials, Instant now) {
+        final State current = state;
+        return current != null
+                && (current.token() != null || current.access() != null)
+                && credentials.equals(current.credentials())
+                && now.isBefore(current.expiresAt().minus(EXPIRY_MARGIN));
+    }
+
+    boolean shouldRefresh(Instant now) {
+        final State current = state;
+        return current != null && now.isAfter(current.expiresAt().minus(REFRESH_AHEAD));
+    }
+
+    /**
+     * @return true if the caller won the right to refresh the session and must call {@link #refreshDone()} afterwards.
+     */
+    boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    void refreshDone() {
+        refreshing.set(false);
+    }
+
+    State state() {
+        return state;
+    }
+
+    private static Instant expiry(Date expires, Instant now) {
+        return expires == null ? now.plus(DEFAULT_LIFETIME) : expires.toInstant();
+    }
+}
@@ -12,12 +12,15 @@ import org.openstack4j.model.compute.Image;
 import org.openstack4j.model.compute.Server;
 import org.openstack4j.model.compute.ServerCreate;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.text.MessageFormat.format;
 
@@ -27,131 +30,252 @@ import static java.text.MessageFormat.format;
  */
 class OpenstackClientWrapper {
     public static final Logger LOG = Logger.getLoggerFor(OpenstackClientWrapper.class);
+    static final Duration FLAVOR_REFRESH_PERIOD = Duration.ofHours(1);
+    static final double REFRESH_AHEAD_RATIO = 0.8;
+    static final Duration UNKNOWN_NAME_TTL = Duration.ofMinutes(1);
+    private static final ExecutorService REFRESH_AHEAD_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "openstack-catalog-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final PluginSettings pluginSettings;
-    private final Map<String, List<String>> previousImageIds = new ConcurrentHashMap<>();
     private final OpenStackClientFactory clientFactory;
-    private Cache<String, String> imageCache;
-    private Cache<String, String> flavorCache;
-    private int imageCacheTTL = 30;
+    private final BootPermits bootPermits;
+    private final ImageCatalog imageCatalog = new ImageCatalog();
+    private final FlavorCatalog flavorCatalog = new FlavorCatalog();
+    private final Duration imageRefreshPeriod;
+    private final Duration flavorRefreshPeriod;
+    private final AtomicBoolean imageRefreshAheadRunning = new AtomicBoolean(false);
+    private final Cache<String, Boolean> unknownImages = unknownNamesCache();
+    private final Cache<String, Boolean> unknownFlavors = unknownNamesCache();
+    private final CatalogStats imageStats = new CatalogStats();
+    private final CatalogStats flavorStats = new CatalogStats();
+    private final Clock clock;
 
-    OpenstackClientWrapper(PluginSettings pluginSettings, OpenStackClientFactory clientFactory, Cache<String, String> imageCache, Cache<String, String> flavorCache) {
+    OpenstackClientWrapper(PluginSettings pluginSettings, OpenStackClientFactory clientFactory, Duration imageRefreshPeriod, Duration flavorRefreshPeriod) {
+        this(pluginSettings, clientFactory, imageRefreshPeriod, flavorRefreshPeriod, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock time source for the age of the image and flavor catalogs
+     */
+    OpenstackClientWrapper(PluginSettings pluginSettings, OpenStackClientFactory clientFactory, Duration imageRefreshPeriod, Duration flavorRefreshPeriod,
+                           Clock clock) {
         this.pluginSettings = pluginSettings;
         this.clientFactory = clientFactory;
-        this.imageCache = imageCache;
-        this.flavorCache = flavorCache;
+        this.imageRefreshPeriod = imageRefreshPeriod;
+        this.flavorRefreshPeriod = flavorRefreshPeriod;
+        this.clock = clock;
+        this.bootPermits = new BootPermits(pluginSettings.getOpenstackMaxConcurrentBoots());
     }
 
     OpenstackClientWrapper(PluginSettings pluginSettings) {
         LOG.debug(format("new OpenstackClientWrapper, PluginSettings:[{0}] ", pluginSettings));
         this.pluginSettings = pluginSettings;
         this.clientFactory = new OpenStackClientFactory();
-        initCache(Integer.parseInt(pluginSettings.getOpenstackImageCacheTTL()));
+        this.bootPermits = new BootPermits(pluginSettings.getOpenstackMaxConcurrentBoots());
+        this.imageRefreshPeriod = Duration.ofMinutes(Integer.parseInt(pluginSettings.getOpenstackImageCacheTTL()));
+        this.flavorRefreshPeriod = FLAVOR_REFRESH_PERIOD;
+        this.clock = Clock.systemUTC();
     }
 
+    /**
+     * Resolve an image name or id from the image catalog, which is listed again when it is older than the image
+     * cache TTL, or when the name or id is not in it.
+     * <p>
+     * A catalog in use is listed ahead in the background once it is older than {@link #REFRESH_AHEAD_RATIO} of the
+     * TTL, so that requests do not wait for the listing. Names not found in OpenStack are remembered for
+     * {@link #UNKNOWN_NAME_TTL} and fail without a call.
+     */
     String getImageId(String nameOrId, String transactionId) throws ImageNotFoundException {
         LOG.debug(format("[{0}] [getImageId] nameOrId [{1}] for {2}", transactionId, nameOrId, pluginSettings.getOpenstackEndpoint()));
-        String imageId = imageCache.get(nameOrId);
+        final Instant now = clock.instant();
+        Instant listedAt = imageCatalog.listedAt();
+        boolean listed = false;
+        if (imageCatalog.isOlderThan(imageRefreshPeriod, now)) {
+            refreshImagesListedAt(listedAt, transactionId);
+            listed = true;
+        } else if (imageCatalog.isOlderThan(refreshAheadPeriod(imageRefreshPeriod), now)) {
+            refreshImagesAhead(listedAt, transactionId);
+        }
+        String imageId = imageCatalog.imageId(nameOrId);
         if (imageId != null) {
-            LOG.info(format("[{0}] [getImageId] found [{1}] with imageId [{2}] in imageCache", transactionId, nameOrId, imageId));
+            imageStats.hit();
+            LOG.debug(format("[{0}] [getImageId] found [{1}] with imageId [{2}] in image catalog", transactionId, nameOrId, imageId));
             return imageId;
         }
+        if (unknownImages.containsKey(nameOrId)) {
+            imageStats.unknownHit();
+            LOG.debug(format("[{0}] [getImageId] [{1}] was recently not found", transactionId, nameOrId));
+            throw new ImageNotFoundException("Failed to find image " + nameOrId);
+        }
+        imageStats.miss();
+        LOG.info(format("[{0}] [getImageId] NOT found [{1}] in image catalog", transactionId, nameOrId));
+        if (!listed) {
+            refreshImagesListedAt(listedAt, transactionId);
+            imageId = imageCatalog.imageId(nameOrId);
+            if (imageId != null) {
+                return imageId;
+            }
+        }
         final OSClient client = clientFactory.createClient(pluginSettings);
-        LOG.info(format("[{0}] [getImageId] NOT found [{1}] in imageCache", transactionId, nameOrId));
         Image image = client.compute().images().get(nameOrId);
         if (image == null) {
-            for (Image tmpImage : client.compute().images().list()) {
-                String imageName = tmpImage.getName();
-                if (imageName != null && imageName.equals(nameOrId)) {
-                    if (!previousImageIds.containsKey(imageName)) {
-                        LOG.debug(format("[{0}] [getImageId] initiate list of previous image is for name [{1}]", transactionId, imageName));
-                        previousImageIds.put(tmpImage.getName(), new ArrayList<>());
-                    }
-                    final List<String> usedImageIds = previousImageIds.get(imageName);
-                    imageId = tmpImage.getId();
-                    if (!usedImageIds.contains(imageId)) {
-                        LOG.debug(format("[{0}] [getImageId] for image name [{1}] add id [{2}]", transactionId, imageName, imageId));
-                        usedImageIds.add(imageId);
-                    }
-                    imageCache.put(nameOrId, imageId);
-                    return imageId;
-                }
-            }
             LOG.error("Failed to find image by ID " + nameOrId);
+            unknownImages.put(nameOrId, Boolean.TRUE);
             throw new ImageNotFoundException("Failed to find image " + nameOrId);
-        } else {
-            LOG.debug("Found image by ID " + nameOrId);
-            imageCache.put(nameOrId, nameOrId);
-            return nameOrId;
         }
+        LOG.debug("Found image by ID " + nameOrId);
+        imageCatalog.add(image, clock.instant());
+        return nameOrId;
     }
 
     String getPreviousImageId(String imageName, String transactionId) {
-        LOG.debug(format("[{0}] [getPreviousImageId] get id for image name [{1}]", transactionId, imageName));
-        if (previousImageIds.containsKey(imageName))
-            if (!previousImageIds.get(imageName).isEmpty()) {
-                final List<String> list = previousImageIds.get(imageName);
-                LOG.debug(format("[{0}] [getPreviousImageId] for image name [{1}] list: [{2}]", transactionId, imageName, list));
-                if (list.size() > 1) {
-                    return list.get(list.size() - 2);
-                }
-            }
-        return "";
+        final String previousImageId = imageCatalog.previousImageId(imageName);
+        LOG.debug(format("[{0}] [getPreviousImageId] for image name [{1}] previous id [{2}]", transactionId, imageName, previousImageId));
+        return previousImageId;
     }
 
-    String getFlavorId(String nameOrId, String transactionId) {
-        LOG.debug(format("[{0}] [getFlavorId] nameOrId [{1}]", transactionId, nameOrId));
-        String flavorId = flavorCache.get(nameOrId);
-        if (flavorId != null) {
-            LOG.info(format("[{0}] [getFlavorId] found [{1}] with flavorId [{2}] in flavorCache", transactionId, nameOrId, flavorId));
-            return flavorId;
-        }
-        final OSClient client = clientFactory.createClient(pluginSettings);
-        LOG.info(format("[{0}] [getFlavorId] NOT found [{1}] in flavorCache", transactionId, nameOrId));
-        Flavor flavor = null;
+    /**
+     * List all images in one call and replace the image catalog with them.
+     */
+    void refreshImages(String transactionId) {
+        final long startedNanos = System.nanoTime();
+        final Instant startedAt = clock.instant();
+        final List<? extends Image> images;
         try {
-            flavor = client.compute().flavors().get(nameOrId);
-        } catch (Exception ex) {
-            LOG.warn(format("[{0}] [getFlavorId] nameOrId [{1}] Exception thrown ", transactionId, nameOrId), ex);
-        }
-        if (flavor == null) {
-            for (Flavor someFlavor : client.compute().flavors().list()) {
-                String flavorName = someFlavor.getName();
-                if (flavorName != null && flavorName.equals(nameOrId)) {
-                    flavorCache.put(flavorName, someFlavor.getId());
-                    return someFlavor.getId();
-                }
+            final OSClient client = clientFactory.createClient(pluginSettings);
+            images = client.compute().images().list();
+        } catch (RuntimeException e) {
+            imageStats.loadFailed();
+            throw e;
+        }
+        imageCatalog.replace(images, startedAt);
+        imageStats.loaded(System.nanoTime() - startedNanos);
+        LOG.info(format("[{0}] [refreshImages] listed {1} images in {2} ms, image catalog {3}", transactionId, images.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos), imageStats));
+    }
+
+    /**
+     * List the images unless another thread did since the catalog was listed at the given time.
+     */
+    private void refreshImagesListedAt(Instant listedAt, String transactionId) {
+        synchronized (imageCatalog) {
+            if (Objects.equals(listedAt, imageCatalog.listedAt())) {
+                refreshImages(transactionId);
             }
-            throw new RuntimeException("Failed to find flavor by name " + nameOrId);
-        } else {
-            LOG.warn("Failed to find flavor by ID " + nameOrId);
-            return nameOrId;
         }
     }
 
-    void resetPreviousImages() {
-        previousImageIds.clear();
+    /**
+     * List the images in the background, at most one listing at a time per cluster.
+     */
+    private void refreshImagesAhead(Instant listedAt, String transactionId) {
+        if (imageRefreshAheadRunning.compareAndSet(false, true)) {
+            LOG.debug(format("[{0}] [refreshImagesAhead] image catalog listed at {1}", transactionId, listedAt));
+            REFRESH_AHEAD_EXECUTOR.execute(() -> {
+                try {
+                    refreshImagesListedAt(listedAt, transactionId);
+                } catch (Exception e) {
+                    LOG.warn(format("[{0}] [refreshImagesAhead] failed to list images", transactionId), e);
+                } finally {
+                    imageRefreshAheadRunning.set(false);
+                }
+            });
+        }
     }
 
-    private synchronized void initCache(int minutesTTL) {
+    private static Duration refreshAheadPeriod(Duration refreshPeriod) {
+        return Duration.ofMillis((long) (refreshPeriod.toMillis() * REFRESH_AHEAD_RATIO));
+    }
 
-        if (this.imageCache == null || imageCacheTTL != minutesTTL) {
-            LOG.info(format("[initCache] with TTL [{0}] minutes", minutesTTL));
-            this.imageCacheTTL = minutesTTL;
-            this.imageCache = new Cache2kBuilder<String, String>() {
-            }
-                    .expireAfterWrite(minutesTTL, TimeUnit.MINUTES)
-                    .entryCapacity(100)
-                    .build();
+    CatalogStats imageStats() {
+        return imageStats;
+    }
+
+    CatalogStats flavorStats() {
+        return flavorStats;
+    }
 
-            this.flavorCache = new Cache2kBuilder<String, String>() {
+    String getFlavorId(String nameOrId, String transactionId) {
+        return getFlavor(nameOrId, transactionId).getId();
+    }
+
+    /**
+     * Find a flavor by id or name in the flavor catalog. Only the first lookup of a cluster lists the flavors,
+     * later listings are done by {@link #refreshFlavorsIfDue(String)} outside of the request path.
+     * <p>
+     * An unknown flavor makes the next refresh list the flavors again, after that it fails without doing so for
+     * {@link #UNKNOWN_NAME_TTL}.
+     */
+    Flavor getFlavor(String nameOrId, String transactionId) {
+        LOG.debug(format("[{0}] [getFlavor] nameOrId [{1}]", transactionId, nameOrId));
+        if (flavorCatalog.listedAt() == null) {
+            refreshFlavorsListedAt(null, transactionId);
+        }
+        final Flavor flavor = flavorCatalog.flavor(nameOrId);
+        if (flavor != null) {
+            flavorStats.hit();
+            return flavor;
+        }
+        if (unknownFlavors.containsKey(nameOrId)) {
+            flavorStats.unknownHit();
+        } else {
+            flavorStats.miss();
+            unknownFlavors.put(nameOrId, Boolean.TRUE);
+            flavorCatalog.markOutdated();
+            LOG.warn(format("[{0}] [getFlavor] NOT found [{1}] in flavor catalog listed at {2}", transactionId, nameOrId,
+                    flavorCatalog.listedAt()));
+        }
+        throw new RuntimeException("Failed to find flavor by name " + nameOrId);
+    }
+
+    /**
+     * List the flavors when the catalog is older than the flavor refresh period, or missed a lookup.
+     * Failures are logged, the catalog keeps the flavors of the last listing.
+     */
+    void refreshFlavorsIfDue(String transactionId) {
+        final Instant listedAt = flavorCatalog.listedAt();
+        if (flavorCatalog.isOlderThan(flavorRefreshPeriod, clock.instant())) {
+            try {
+                refreshFlavorsListedAt(listedAt, transactionId);
+            } catch (Exception e) {
+                LOG.warn(format("[{0}] [refreshFlavorsIfDue] failed to list flavors, keeping flavors listed at {1}",
+                        transactionId, listedAt), e);
             }
-                    .expireAfterWrite(24, TimeUnit.HOURS)
-                    .entryCapacity(100)
-                    .build();
+        }
+    }
 
+    private void refreshFlavorsListedAt(Instant listedAt, String transactionId) {
+        synchronized (flavorCatalog) {
+            if (Objects.equals(listedAt, flavorCatalog.listedAt())) {
+                final long startedNanos = System.nanoTime();
+                final Instant startedAt = clock.instant();
+                final List<? extends Flavor> flavors;
+                try {
+                    final OSClient client = clientFactory.createClient(pluginSettings);
+                    flavors = client.compute().flavors().list();
+                } catch (RuntimeException e) {
+                    flavorStats.loadFailed();
+                    throw e;
+                }
+                flavorCatalog.replace(flavors, startedAt);
+                flavorStats.loaded(System.nanoTime() - startedNanos);
+                LOG.info(format("[{0}] [refreshFlavors] listed {1} flavors in {2} ms, flavor catalog {3}", transactionId, flavors.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos), flavorStats));
+            }
         }
     }
 
+    private static Cache<String, Boolean> unknownNamesCache() {
+        return new Cache2kBuilder<String, Boolean>() {
+        }.expireAfterWrite(UNKNOWN_NAME_TTL.getSeconds(), TimeUnit.SECONDS).entryCapacity(100).build();
+    }
+
+    void resetPreviousImages() {
+        imageCatalog.resetLineage();
+    }
+
     boolean instanceNameExists(String instance_name) {
         final OSClient client = clientFactory.createClient(pluginSettings);
         Map<String, String> newInstance = new HashMap<>();
@@ -159,9 +283,34 @@ class OpenstackClientWrapper {
         return !client.compute().servers().list(newInstance).isEmpty();
     }
 
-    synchronized Server bootServer(ServerCreate build) {
-        final OSClient client = clientFactory.createClient(pluginSettings);
-        return client.compute().servers().boot(build);
+    /**
+     * Boot a server, with at most {@link PluginSettings#getOpenstackMaxConcurrentBoots()} boots in flight for the cluster.
+     * The limit follows {@link #setMaxConcurrentBoots(int)}.
+     */
+    /**
+     * Change the number of boots in flight for the cluster. Boots already in flight finish.
+     */
+    void setMaxConcurrentBoots(int maxConcurrentBoots) {
+        if (bootPermits.limit() != maxConcurrentBoots) {
+            LOG.info("[setMaxConcurrentBoots] from [{}] to [{}]", bootPermits.limit(), maxConcurrentBoots);
+            bootPermits.resize(maxConcurrentBoots);
+        }
+    }
+
+    Server bootServer(ServerCreate build) {
+        try {
+            bootPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to boot " + build.getName(), e);
+        }
+        try {
+            LOG.debug("[bootServer] name=[{}] boots waiting=[{}]", build.getName(), bootPermits.getQueueLength());
+            final OSClient client = clientFactory.createClient(pluginSettings);
+            return client.compute().servers().boot(build);
+        } finally {
+            bootPermits.release();
+        }
     }
 
     Server getServer(String id) throws InstanceNotFoundException {
@@ -198,12 +347,16 @@ class OpenstackClientWrapper {
         return (List<Server>) client.compute().servers().list(op_instance_prefix);
     }
 
-    boolean isInstanceInErrorState(String id) {
+    /**
+     * List servers with the prefix that were created, updated or deleted since the given time.
+     * Deleted servers are returned with status {@link Server.Status#DELETED}.
+     */
+    List<Server> listServersChangedSince(String prefix, Instant since) {
+        LOG.debug("[listServersChangedSince] prefix=[{}] since=[{}]", prefix, since);
         final OSClient client = clientFactory.createClient(pluginSettings);
-        final Server server = client.compute().servers().get(id);
-        if (server == null) {
-            return false;
-        }
-        return server.getStatus() == Server.Status.ERROR;
+        Map<String, String> filter = new HashMap<>();
+        filter.put("name", prefix);
+        filter.put("changes-since", DateTimeFormatter.ISO_INSTANT.format(since));
+        return (List<Server>) client.compute().servers().list(filter);
     }
 }
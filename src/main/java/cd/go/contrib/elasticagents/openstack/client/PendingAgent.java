@@ -12,14 +12,27 @@ public class PendingAgent {
     private static final Logger LOG = Logger.getLoggerFor(PendingAgent.class);
     private final String pendingInstanceImageId;
     private final String pendingInstanceFlavorId;
-    private OpenStackInstance pendingInstance;
+    private final String elasticAgentId;
+    private final boolean booting;
     private CreateAgentRequest createRequest;
 
     public PendingAgent(OpenStackInstance pendingInstance, CreateAgentRequest request) {
-        this.pendingInstance = pendingInstance;
+        this.elasticAgentId = pendingInstance.id();
         this.createRequest = request;
         this.pendingInstanceImageId = pendingInstance.getImageIdOrName();
         this.pendingInstanceFlavorId = pendingInstance.getFlavorIdOrName();
+        this.booting = false;
+    }
+
+    /**
+     * Pending agent for an instance that is still being booted in the background, known by its instance name only.
+     */
+    PendingAgent(String instanceName, String imageId, String flavorId, CreateAgentRequest request) {
+        this.elasticAgentId = instanceName;
+        this.createRequest = request;
+        this.pendingInstanceImageId = imageId;
+        this.pendingInstanceFlavorId = flavorId;
+        this.booting = true;
     }
 
     public AgentMatchResult match(String transactionId, String proposedImageIdOrName, String proposedFlavorIdOrName, String requestEnvironment, JobIdentifier job) {
@@ -58,13 +71,22 @@ public class PendingAgent {
     }
 
     public String elasticAgentId() {
-        return pendingInstance.id();
+        return elasticAgentId;
+    }
+
+    String profileKey() {
+        return ProfileIndex.key(createRequest.environment(), pendingInstanceImageId, pendingInstanceFlavorId);
+    }
+
+    public boolean isBooting() {
+        return booting;
     }
 
     @Override
     public String toString() {
         return "PendingAgent{" +
                 "agentId='" + elasticAgentId() + '\'' +
+                ", booting=" + booting +
                 '}';
     }
 }
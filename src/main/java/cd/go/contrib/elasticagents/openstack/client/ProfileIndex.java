@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.commons.lang3.StringUtils.stripToEmpty;
+
+/**
+ * Instances and pending agents of one cluster grouped by profile, that is environment, image id and flavor id.
+ * Kept up to date on register, terminate and pending transitions, so matching a job profile does not need to
+ * look at every agent.
+ */
+class ProfileIndex {
+    private final Map<String, Set<String>> instanceIds = new ConcurrentHashMap<>();
+    private final Map<String, Set<PendingAgent>> pendingAgents = new ConcurrentHashMap<>();
+
+    static String key(String environment, String imageId, String flavorId) {
+        return stripToEmpty(environment).toLowerCase(Locale.ROOT) + "|" + imageId + "|" + flavorId;
+    }
+
+    static String key(OpenStackInstance instance) {
+        return key(instance.environment(), instance.getImageIdOrName(), instance.getFlavorIdOrName());
+    }
+
+    void addInstance(OpenStackInstance instance) {
+        add(instanceIds, key(instance), instance.id());
+    }
+
+    void removeInstance(OpenStackInstance instance) {
+        remove(instanceIds, key(instance), instance.id());
+    }
+
+    void addPending(PendingAgent agent) {
+        add(pendingAgents, agent.profileKey(), agent);
+    }
+
+    void removePending(PendingAgent agent) {
+        remove(pendingAgents, agent.profileKey(), agent);
+    }
+
+    Set<String> instanceIds(String key) {
+        final Set<String> ids = instanceIds.get(key);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    Collection<PendingAgent> pendingAgents(String key) {
+        final Set<PendingAgent> agents = pendingAgents.get(key);
+        return agents == null ? Collections.emptySet() : Collections.unmodifiableSet(agents);
+    }
+
+    private static <T> void add(Map<String, Set<T>> index, String key, T value) {
+        index.compute(key, (k, values) -> {
+            if (values == null) {
+                values = ConcurrentHashMap.newKeySet();
+            }
+            values.add(value);
+            return values;
+        });
+    }
+
+    private static <T> void remove(Map<String, Set<T>> index, String key, T value) {
+        index.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cd.go.contrib.elasticagents.openstack.client;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+import org.openstack4j.model.compute.Server;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory view of the servers of one cluster, filled from a single servers/detail listing per ping cycle.
+ * Between full listings only the servers changed since the last sync are merged in.
+ * <p>
+ * Servers booted by this plugin after a listing was requested are remembered by id, so that they are not reported
+ * as disappeared before the next listing sees them. Likewise, servers removed after a listing was requested are
+ * remembered, so that the listing does not bring them back.
+ * <p>
+ * The servers are kept as an immutable snapshot that is swapped atomically, so readers never take a lock.
+ */
+class ServerInventory {
+    public static final Logger LOG = Logger.getLoggerFor(ServerInventory.class);
+
+    private final Map<String, Instant> bootedLocally = new ConcurrentHashMap<>();
+    private final Map<String, Instant> removedLocally = new ConcurrentHashMap<>();
+    private final AtomicReference<Map<String, Server>> servers = new AtomicReference<>(Collections.emptyMap());
+    private volatile Instant lastSync;
+    private volatile Instant lastFullSync;
+    private final Clock clock;
+
+    ServerInventory() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * @param clock time source for when servers were booted or removed locally
+     */
+    ServerInventory(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Replace the inventory with the result of a listing.
+     *
+     * @param listing   all servers of the cluster
+     * @param startedAt when the listing was requested
+     */
+    void replace(List<? extends Server> listing, Instant startedAt) {
+        Map<String, Server> snapshot = new HashMap<>();
+        for (Server server : listing) {
+            if (!removedSince(server.getId(), startedAt)) {
+                snapshot.put(server.getId(), server);
+            }
+        }
+        bootedLocally.values().removeIf(bootedAt -> bootedAt.isBefore(startedAt));
+        servers.set(Collections.unmodifiableMap(snapshot));
+        // A remove made while the snapshot was built is applied on top of it.
+        for (Map.Entry<String, Instant> removed : removedLocally.entrySet()) {
+            if (!removed.getValue().isBefore(startedAt)) {
+                removeFromSnapshot(removed.getKey());
+            }
+        }
+        removedLocally.values().removeIf(removedAt -> removedAt.isBefore(startedAt));
+        lastSync = startedAt;
+        lastFullSync = startedAt;
+        LOG.debug("[replace] inventory has {} servers, {} booted since listing", snapshot.size(), bootedLocally.size());
+    }
+
+    /**
+     * Apply the servers changed since the last sync. Deleted servers are dropped from the inventory.
+     *
+     * @param changes   servers created, updated or deleted since the last sync
+     * @param startedAt when the listing was requested
+     */
+    void merge(List<? extends Server> changes, Instant startedAt) {
+        final Map<String, Server> merged = servers.updateAndGet(current -> {
+            Map<String, Server> snapshot = new HashMap<>(current);
+            for (Server server : changes) {
+                if (server.getStatus() == Server.Status.DELETED || removedSince(server.getId(), startedAt)) {
+                    snapshot.remove(server.getId());
+                } else {
+                    snapshot.put(server.getId(), server);
+                }
+            }
+            return Collections.unmodifiableMap(snapshot);
+        });
+        for (Server server : changes) {
+            if (server.getStatus() == Server.Status.DELETED) {
+                bootedLocally.remove(server.getId());
+            }
+        }
+        bootedLocally.values().removeIf(bootedAt -> bootedAt.isBefore(startedAt));
+        removedLocally.values().removeIf(removedAt -> removedAt.isBefore(startedAt));
+        lastSync = startedAt;
+        LOG.debug("[merge] applied {} changes, inventory has {} servers", changes.size(), merged.size());
+    }
+
+    /**
+     * Remember a server booted by this plugin until a listing requested after the boot has seen it.
+     */
+    void booted(String id) {
+        bootedLocally.put(id, clock.instant());
+    }
+
+    /**
+     * Drop a server terminated by this plugin. It stays dropped even if a listing requested before the removal
+     * still has it.
+     */
+    void remove(String id) {
+        removedLocally.put(id, clock.instant());
+        removeFromSnapshot(id);
+        bootedLocally.remove(id);
+    }
+
+    private boolean removedSince(String id, Instant startedAt) {
+        final Instant removedAt = removedLocally.get(id);
+        return removedAt != null && !removedAt.isBefore(startedAt);
+    }
+
+    private void removeFromSnapshot(String id) {
+        servers.updateAndGet(current -> {
+            if (!current.containsKey(id)) {
+                return current;
+            }
+            Map<String, Server> snapshot = new HashMap<>(current);
+            snapshot.remove(id);
+            return Collections.unmodifiableMap(snapshot);
+        });
+    }
+
+    boolean contains(String id) {
+        return servers.get().containsKey(id) || bootedLocally.containsKey(id);
+    }
+
+    boolean containsName(String name) {
+        for (Server server : servers.get().values()) {
+            if (name.equals(server.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Server get(String id) {
+        return servers.get().get(id);
+    }
+
+    boolean isInErrorState(String id) {
+        final Server server = servers.get().get(id);
+        return server != null && server.getStatus() == Server.Status.ERROR;
+    }
+
+    String faultMessage(String id) {
+        final Server server = servers.get().get(id);
+        if (server == null || server.getFault() == null) {
+            return null;
+        }
+        return server.getFault().getMessage();
+    }
+
+    Instant lastSync() {
+        return lastSync;
+    }
+
+    Instant lastFullSync() {
+        return lastFullSync;
+    }
+
+    Collection<Server> servers() {
+        return servers.get().values();
+    }
+}
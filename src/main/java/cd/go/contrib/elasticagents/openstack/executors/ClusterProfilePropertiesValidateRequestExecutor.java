@@ -19,6 +19,7 @@ package cd.go.contrib.elasticagents.openstack.executors;
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.Metadata;
 import cd.go.contrib.elasticagents.openstack.requests.ClusterProfileValidateRequest;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
 import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
@@ -29,7 +30,7 @@ import static cd.go.contrib.elasticagents.openstack.executors.GetClusterProfileM
 
 
 public class ClusterProfilePropertiesValidateRequestExecutor implements RequestExecutor {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Gsons.DEFAULT;
     private final ClusterProfileValidateRequest request;
 
     public ClusterProfilePropertiesValidateRequestExecutor(ClusterProfileValidateRequest request) {
@@ -17,6 +17,7 @@
 package cd.go.contrib.elasticagents.openstack.executors;
 
 import cd.go.contrib.elasticagents.openstack.AgentMatchResult;
+import cd.go.contrib.elasticagents.openstack.Agents;
 import cd.go.contrib.elasticagents.openstack.Constants;
 import cd.go.contrib.elasticagents.openstack.PluginRequest;
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
@@ -70,8 +71,9 @@ public class CreateAgentRequestExecutor implements RequestExecutor {
 
         String requestImageId = agentInstances.getImageId(request.properties(), transactionId);
         String flavorId = agentInstances.getFlavorId(request.properties(), transactionId);
+        final int idleAgentsToKeep = agentInstances.recordDemand(request.properties(), request.environment(), requestImageId, flavorId);
 
-        for (PendingAgent agent : agentInstances.getPendingAgents()) {
+        for (PendingAgent agent : agentInstances.pendingAgentsMatching(request.environment(), requestImageId, flavorId)) {
             LOG.debug("[{}] [create-agent] Check if pending agent {} match job profile", transactionId, agent);
             AgentMatchResult matchResult = agent.match(transactionId, requestImageId, flavorId, request.environment(), request.job());
             if (matchResult.isJobMatch()) {
@@ -94,22 +96,28 @@ public class CreateAgentRequestExecutor implements RequestExecutor {
             minInstanceLimit = Integer.parseInt(settings.getDefaultMinInstanceLimit());
             LOG.debug("[{}] [create-agent] Using minInstanceLimit from cluster profile value: {}", transactionId, request);
         }
+        if (idleAgentsToKeep > 0) {
+            // keep creating until the idle agents to keep are left after this job took an idle agent
+            minInstanceLimit = Math.max(minInstanceLimit, idleAgentsToKeep + 1);
+            LOG.debug("[{}] [create-agent] Using minInstanceLimit {} for {} idle agents to keep", transactionId, minInstanceLimit, idleAgentsToKeep);
+        }
 
-        for (Agent agent : pluginRequest.listAgents().agents()) {
-            LOG.debug("[{}] [create-agent] Check if agent {} match job {}", transactionId, agent, request.job().represent());
-            if (agentInstances.matchInstance(agent.elasticAgentId(), request.properties(), request.environment(),
-                    transactionId, false)) {
-                matchingAgentCount++;
-                LOG.debug("[{}] [create-agent] found matching agent {} for job {}", transactionId, agent.elasticAgentId(), request.job().represent());
-                if ((agent.agentState() == Agent.AgentState.Idle)) {
-                    idleAgentsFound.add(agent.elasticAgentId());
-                    LOG.info("[{}] [create-agent] found {} matching idle agent {} for job {}",
-                            transactionId, idleAgentsFound, agent.elasticAgentId(), request.job().represent());
-                    if (idleAgentsFound.size() >= minInstanceLimit) {
-                        LOG.info("[{}] [create-agent] Will NOT create new instance, found {} matching idle agent {} for job {}",
-                                transactionId, idleAgentsFound.size(), idleAgentsFound, request.job().represent());
-                        return new DefaultGoPluginApiResponse(200);
-                    }
+        final Agents registeredAgents = pluginRequest.listAgents();
+        for (String instanceId : agentInstances.instanceIdsMatching(request.environment(), requestImageId, flavorId)) {
+            Agent agent = registeredAgents.find(instanceId);
+            if (agent == null) {
+                continue;
+            }
+            matchingAgentCount++;
+            LOG.debug("[{}] [create-agent] found matching agent {} for job {}", transactionId, agent.elasticAgentId(), request.job().represent());
+            if ((agent.agentState() == Agent.AgentState.Idle)) {
+                idleAgentsFound.add(agent.elasticAgentId());
+                LOG.info("[{}] [create-agent] found {} matching idle agent {} for job {}",
+                        transactionId, idleAgentsFound, agent.elasticAgentId(), request.job().represent());
+                if (idleAgentsFound.size() >= minInstanceLimit) {
+                    LOG.info("[{}] [create-agent] Will NOT create new instance, found {} matching idle agent {} for job {}",
+                            transactionId, idleAgentsFound.size(), idleAgentsFound, request.job().represent());
+                    return new DefaultGoPluginApiResponse(200);
                 }
             }
         }
@@ -123,7 +131,11 @@ public class CreateAgentRequestExecutor implements RequestExecutor {
         }
 
         try {
-            agentInstances.create(request, transactionId);
+            if (settings.getAsyncAgentCreation()) {
+                agentInstances.createAsync(request, transactionId, pluginRequest);
+            } else {
+                agentInstances.create(request, transactionId);
+            }
             LOG.info("[{}] [create-agent] Will create new agent since no matching agents found", transactionId);
         } catch (ImageNotFoundException ex) {
             final String errorMsg = "Cannot create new agent since no image found";
@@ -18,8 +18,8 @@ package cd.go.contrib.elasticagents.openstack.executors;
 
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.*;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 
@@ -27,7 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class GetClusterProfileMetadataExecutor implements RequestExecutor {
-    public static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    public static final Gson GSON = Gsons.EXPOSED;
 
     public static final Metadata GO_SERVER_URL = new GoServerURLMetadata();
     public static final Field AGENT_TTL_MIN = new PositiveNumberField("auto_register_timeout", "Agent TTL minimum (in minutes)", "10", true, false, "1");
@@ -52,6 +52,8 @@ public class GetClusterProfileMetadataExecutor implements RequestExecutor {
     public static final Field OPENSTACK_USERDATA = new Field("openstack_userdata", "OpenStack Userdata", null, false, false, "17");
     public static final Field SSL_VERIFICATION_DISABLED = new NonBlankField("ssl_verification_disabled", "Disable SSL verification", "false", true, false, "18");
     public static final Field DELETE_ERROR_INSTANCES = new NonBlankField("delete_error_instances", "Delete error instances", "false", false, false, "19");
+    public static final Field ASYNC_AGENT_CREATION = new Field("async_agent_creation", "Create agents asynchronously", "false", false, false, "20");
+    public static final Field OPENSTACK_MAX_CONCURRENT_BOOTS = new OptionalPositiveNumberField("openstack_max_concurrent_boots", "Maximum concurrent instance boots", "5", false, "21");
     public static final Field AGENT_PENDING_REGISTER_TIMEOUT = new PositiveNumberField("agent_pending_register_timeout", "Agent auto-register Timeout (in minutes)", "10", true, false, "1");
 
     //public static final Field AGENT_RESOURCES = new Field("resources", "Agent Resources", null, false, false, "11");
@@ -81,6 +83,8 @@ public class GetClusterProfileMetadataExecutor implements RequestExecutor {
         FIELDS.add(SSL_VERIFICATION_DISABLED);
         FIELDS.add(DELETE_ERROR_INSTANCES);
         FIELDS.add(AGENT_PENDING_REGISTER_TIMEOUT);
+        FIELDS.add(ASYNC_AGENT_CREATION);
+        FIELDS.add(OPENSTACK_MAX_CONCURRENT_BOOTS);
 
         // agent spec
         //FIELDS.add( AGENT_RESOURCES);
@@ -18,6 +18,7 @@ package cd.go.contrib.elasticagents.openstack.executors;
 
 
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import cd.go.contrib.elasticagents.openstack.utils.Util;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -27,7 +28,7 @@ import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 import java.util.Base64;
 
 public class GetPluginSettingsIconExecutor implements RequestExecutor {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Gsons.DEFAULT;
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
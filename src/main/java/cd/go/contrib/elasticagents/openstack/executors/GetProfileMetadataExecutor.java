@@ -19,8 +19,8 @@ package cd.go.contrib.elasticagents.openstack.executors;
 import cd.go.contrib.elasticagents.openstack.Constants;
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.Metadata;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 
@@ -37,8 +37,9 @@ public class GetProfileMetadataExecutor implements RequestExecutor {
     public static final Metadata OPENSTACK_MAX_INSTANCE_LIMIT = new Metadata(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, false, false);
     public static final Metadata OPENSTACK_USERDATA = new Metadata(Constants.OPENSTACK_USERDATA_ARGS, false, false);
     public static final Metadata AGENT_JOB_LIMIT_MAX = new Metadata(Constants.AGENT_JOB_LIMIT_MAX, false, false);
+    public static final Metadata OPENSTACK_IDLE_AGENTS_TO_KEEP = new Metadata(Constants.OPENSTACK_IDLE_AGENTS_TO_KEEP, false, false);
     public static final List<Metadata> FIELDS = new ArrayList<>();
-    private static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    private static final Gson GSON = Gsons.EXPOSED;
 
     static {
         FIELDS.add(OPENSTACK_IMAGE_ID);
@@ -50,6 +51,7 @@ public class GetProfileMetadataExecutor implements RequestExecutor {
         FIELDS.add(OPENSTACK_MAX_INSTANCE_LIMIT);
         FIELDS.add(OPENSTACK_USERDATA);
         FIELDS.add(AGENT_JOB_LIMIT_MAX);
+        FIELDS.add(OPENSTACK_IDLE_AGENTS_TO_KEEP);
     }
 
     @Override
@@ -17,6 +17,7 @@
 package cd.go.contrib.elasticagents.openstack.executors;
 
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import cd.go.contrib.elasticagents.openstack.utils.Util;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -24,7 +25,7 @@ import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 
 public class GetProfileViewExecutor implements RequestExecutor {
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Gsons.DEFAULT;
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
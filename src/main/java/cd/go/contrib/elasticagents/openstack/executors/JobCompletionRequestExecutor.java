@@ -35,15 +35,22 @@ public class JobCompletionRequestExecutor implements RequestExecutor {
         final String elasticAgentId = jobCompletionRequest.getElasticAgentId();
         final OpenStackInstance instance = agentInstances.find(elasticAgentId);
         Agent agent = new Agent(elasticAgentId);
-        LOG.info(format("[job-completed] instance {0} has {1}/{2} completed jobs.",
-                elasticAgentId, instance.getJobsCompleted(), instance.getMaxCompletedJobs()));
+        LOG.info(format("[job-completed] instance {0} has {1}/{2} completed jobs, usage {3}.",
+                elasticAgentId, instance.getJobsCompleted(), instance.getMaxCompletedJobs(), instance.usage()));
         if (instance.incrementJobsCompleted()) {
             LOG.info(format("[job-completed] Will terminate instance {0} in cluster {1} as it has completed enough jobs.",
                     elasticAgentId, clusterProfileProperties));
             List<Agent> agents = Arrays.asList(agent);
-            pluginRequest.disableAgents(agents);
-            agentInstances.terminate(elasticAgentId);
-            pluginRequest.deleteAgents(agents);
+            try {
+                pluginRequest.disableAgents(agents);
+                if (!agentInstances.terminate(elasticAgentId)) {
+                    instance.terminationFailed();
+                }
+                pluginRequest.deleteAgents(agents);
+            } catch (Exception e) {
+                instance.terminationFailed();
+                throw e;
+            }
         } else {
             LOG.info(format("[job-completed] Will NOT terminate instance {0} when completed job {1}", elasticAgentId, jobCompletionRequest.jobIdentifier().getRepresentation()));
         }
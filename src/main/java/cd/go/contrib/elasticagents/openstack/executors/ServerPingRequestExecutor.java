@@ -16,44 +16,150 @@
 
 package cd.go.contrib.elasticagents.openstack.executors;
 
+import cd.go.contrib.elasticagents.openstack.PingScopedPluginRequest;
 import cd.go.contrib.elasticagents.openstack.PluginRequest;
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.client.OpenStackInstances;
 import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
 import com.thoughtworks.go.plugin.api.logging.Logger;
 import com.thoughtworks.go.plugin.api.response.DefaultGoPluginApiResponse;
 import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class ServerPingRequestExecutor implements RequestExecutor {
 
     private static final Logger LOG = Logger.getLoggerFor(ServerPingRequestExecutor.class);
+    static final int PING_THREADS = 8;
+    static final Duration CLUSTER_PING_TIMEOUT = Duration.ofMinutes(2);
+    private static final ExecutorService PING_EXECUTOR = newPingExecutor();
+    private static final Set<OpenStackInstances> RUNNING_PINGS = ConcurrentHashMap.newKeySet();
+
     private final PluginRequest pluginRequest;
+    private final Duration clusterPingTimeout;
     private Map<String, OpenStackInstances> clusterSpecificAgentInstances;
 
     public ServerPingRequestExecutor(Map<String, OpenStackInstances> clusterSpecificAgentInstances, PluginRequest pluginRequest) {
+        this(clusterSpecificAgentInstances, pluginRequest, CLUSTER_PING_TIMEOUT);
+    }
+
+    ServerPingRequestExecutor(Map<String, OpenStackInstances> clusterSpecificAgentInstances, PluginRequest pluginRequest,
+                              Duration clusterPingTimeout) {
         this.clusterSpecificAgentInstances = clusterSpecificAgentInstances;
-        this.pluginRequest = pluginRequest;
+        this.pluginRequest = new PingScopedPluginRequest(pluginRequest);
+        this.clusterPingTimeout = clusterPingTimeout;
+    }
+
+    /**
+     * Shared by all pings. Threads are only kept while clusters are being processed.
+     */
+    private static ExecutorService newPingExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(PING_THREADS, PING_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "openstack-server-ping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
     public GoPluginApiResponse execute() throws Exception {
         LOG.debug("[execute] clusterSpecificAgentInstances.size()={}", clusterSpecificAgentInstances.size());
 
-        for (OpenStackInstances agentInstances : clusterSpecificAgentInstances.values()) {
-            agentInstances.refreshAll(pluginRequest);
-            agentInstances.removeOldAndDisabled(pluginRequest);
+        Map<String, Future<Boolean>> pings = new LinkedHashMap<>();
+        boolean allClustersPinged = true;
+        for (Map.Entry<String, OpenStackInstances> cluster : clusterSpecificAgentInstances.entrySet()) {
+            final Future<Boolean> ping = submitPing(cluster.getValue());
+            if (ping != null) {
+                pings.put(cluster.getKey(), ping);
+            } else {
+                final String message = String.format("Processing cluster [%s] from an earlier server ping is still running, skipped it.",
+                        cluster.getKey());
+                LOG.warn("[execute] " + message);
+                pluginRequest.addServerHealthMessage("ServerPingFailed-" + cluster.getKey(), ServerHealthMessages.Type.WARNING, message);
+                allClustersPinged = false;
+            }
+        }
+
+        final long deadline = System.nanoTime() + clusterPingTimeout.toNanos();
+        for (Map.Entry<String, Future<Boolean>> ping : pings.entrySet()) {
+            allClustersPinged &= awaitClusterPing(ping.getKey(), ping.getValue(), deadline);
+        }
+
+        if (allClustersPinged) {
+            removeAgentsForMissingOpenStackInstances();
+        } else {
+            LOG.warn("[execute] not all clusters could be processed, skipping removal of agents with missing instances");
         }
-        removeAgentsForMissingOpenStackInstances();
         pluginRequest.sendServerHealthMessage();
         return DefaultGoPluginApiResponse.success("");
     }
 
+    /**
+     * Start processing a cluster, unless processing it for an earlier server ping is still running. Blocking
+     * OpenStack calls cannot be interrupted, so a stuck cluster holds at most one ping thread instead of getting
+     * a new task queued behind it on every server ping.
+     *
+     * The ping completes with false when the instances of the cluster were not refreshed because a refresh was
+     * already running, such as the initial refresh of a cluster that just started. Its instances may then not be
+     * known yet.
+     *
+     * @return the started ping, or null if the earlier one is still running
+     */
+    private Future<Boolean> submitPing(OpenStackInstances agentInstances) {
+        if (!RUNNING_PINGS.add(agentInstances)) {
+            return null;
+        }
+        return PING_EXECUTOR.submit(() -> {
+            try {
+                if (!agentInstances.refreshAll(pluginRequest)) {
+                    return false;
+                }
+                agentInstances.removeOldAndDisabled(pluginRequest);
+                return true;
+            } finally {
+                RUNNING_PINGS.remove(agentInstances);
+            }
+        });
+    }
+
+    /**
+     * Wait for the ping of one cluster until the shared deadline. A failing or slow cluster is reported as a
+     * health message for that cluster only, and does not affect the other clusters.
+     *
+     * @return true if the cluster was refreshed and processed successfully
+     */
+    private boolean awaitClusterPing(String clusterId, Future<Boolean> ping, long deadline) {
+        final String messageId = "ServerPingFailed-" + clusterId;
+        try {
+            if (!ping.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                LOG.info("[execute] cluster [{}] was being refreshed by another request, not processed in this ping", clusterId);
+                return false;
+            }
+            pluginRequest.removeServerHealthMessage(messageId);
+            return true;
+        } catch (TimeoutException e) {
+            final String message = String.format("Processing cluster [%s] took longer than %d seconds, not waiting for it anymore.",
+                    clusterId, clusterPingTimeout.getSeconds());
+            LOG.warn("[execute] " + message);
+            pluginRequest.addServerHealthMessage(messageId, ServerHealthMessages.Type.WARNING, message);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            final String message = String.format("Processing cluster [%s] failed: %s", clusterId, cause.getMessage());
+            LOG.error("[execute] " + message, cause);
+            pluginRequest.addServerHealthMessage(messageId, ServerHealthMessages.Type.ERROR, message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
     private void removeAgentsForMissingOpenStackInstances() throws Exception {
         Collection<Agent> allAgents = pluginRequest.listAgents().agents();
         LOG.debug("[checkForPossiblyMissingAgents] allAgents.size()={}", allAgents.size());
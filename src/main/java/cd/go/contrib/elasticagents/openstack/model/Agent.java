@@ -16,9 +16,8 @@
 
 package cd.go.contrib.elasticagents.openstack.model;
 
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
@@ -44,7 +43,7 @@ public class Agent {
 
     public static final Type AGENT_METADATA_LIST_TYPE = new TypeToken<ArrayList<Agent>>() {
     }.getType();
-    public static final Gson GSON = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
+    public static final Gson GSON = Gsons.UNDERSCORES;
 
     @Expose
     @SerializedName("agent_id")
@@ -98,7 +97,7 @@ public class Agent {
     }
 
     public static String toJSONArray(Collection<Agent> metadata) {
-        return new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create().toJson(metadata);
+        return GSON.toJson(metadata);
     }
 
     @Override
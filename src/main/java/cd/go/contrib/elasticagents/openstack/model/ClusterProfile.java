@@ -17,9 +17,8 @@
 package cd.go.contrib.elasticagents.openstack.model;
 
 import cd.go.contrib.elasticagents.openstack.PluginSettings;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -27,10 +26,7 @@ import java.util.HashMap;
 import java.util.Objects;
 
 public class ClusterProfile {
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .excludeFieldsWithoutExposeAnnotation()
-            .create();
+    public static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
 
     @Expose
     @SerializedName("id")
@@ -18,14 +18,26 @@ package cd.go.contrib.elasticagents.openstack.model;
 
 import cd.go.contrib.elasticagents.openstack.PluginSettings;
 import cd.go.contrib.elasticagents.openstack.requests.ClusterProfileValidateRequest;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
+import cd.go.contrib.elasticagents.openstack.utils.Util;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+import com.google.gson.annotations.Expose;
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class ClusterProfileProperties extends PluginSettings {
+    private static final Gson VALIDATION_GSON = Gsons.UNDERSCORES_EXPOSED_PRETTY;
+    private static final Cache<String, String> VALIDATION_RESULTS = new Cache2kBuilder<String, String>() {
+    }.expireAfterWrite(60, TimeUnit.MINUTES).entryCapacity(100).build();
+    private static final List<Field> VALIDATED_FIELDS = exposedFields();
+
     public static ClusterProfileProperties fromJSON(String json) {
         return GSON.fromJson(json, ClusterProfileProperties.class);
     }
@@ -35,18 +47,50 @@ public class ClusterProfileProperties extends PluginSettings {
     }
 
     public String toJson() {
-        Gson gson = new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .excludeFieldsWithoutExposeAnnotation()
-                .setPrettyPrinting()
-                .create();
-        return gson.toJson(this);
+        return VALIDATION_GSON.toJson(this);
     }
 
+    /**
+     * Validate the properties against the cluster profile fields. GoCD sends the same cluster profile with every
+     * request, so the validation result is cached by a SHA-256 of the properties, which keeps the password out of
+     * the cache and avoids serializing the properties unless they have to be validated.
+     *
+     * @param message prefix of the exception message
+     * @throws IllegalArgumentException if the properties are not valid
+     */
     public void validate(String message) throws Exception {
-        final GoPluginApiResponse response = ClusterProfileValidateRequest.fromJSON(toJson()).executor().execute();
-        if (!"[]".equals(response.responseBody()))
-            throw new IllegalArgumentException(message + ": " + response.responseBody());
+        final String key = validationKey();
+        String errors = VALIDATION_RESULTS.peek(key);
+        if (errors == null) {
+            errors = ClusterProfileValidateRequest.fromJSON(toJson()).executor().execute().responseBody();
+            VALIDATION_RESULTS.put(key, errors);
+        }
+        if (!"[]".equals(errors))
+            throw new IllegalArgumentException(message + ": " + errors);
+    }
+
+    String validationKey() {
+        final String[] values = new String[VALIDATED_FIELDS.size()];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                final Object value = VALIDATED_FIELDS.get(i).get(this);
+                values[i] = value == null ? null : value.toString();
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return Util.sha256Hex(values);
+    }
+
+    private static List<Field> exposedFields() {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : PluginSettings.class.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Expose.class)) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return Collections.unmodifiableList(fields);
     }
 
     @Override
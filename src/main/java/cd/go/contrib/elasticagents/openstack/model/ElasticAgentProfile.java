@@ -16,9 +16,8 @@
 
 package cd.go.contrib.elasticagents.openstack.model;
 
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -26,10 +25,7 @@ import java.util.HashMap;
 import java.util.Objects;
 
 public class ElasticAgentProfile {
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .excludeFieldsWithoutExposeAnnotation()
-            .create();
+    public static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
 
     @Expose
     @SerializedName("id")
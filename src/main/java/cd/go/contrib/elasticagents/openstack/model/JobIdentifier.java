@@ -1,8 +1,7 @@
 package cd.go.contrib.elasticagents.openstack.model;
 
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import org.apache.commons.lang3.StringUtils;
 
@@ -11,9 +10,7 @@ import java.util.Objects;
 import static java.text.MessageFormat.format;
 
 public class JobIdentifier {
-    private static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .create();
+    private static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
 
     @Expose
     private String pipelineName;
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cd.go.contrib.elasticagents.openstack.model;
+
+import org.apache.commons.lang3.StringUtils;
+
+public class OptionalPositiveNumberField extends PositiveNumberField {
+    public OptionalPositiveNumberField(String key, String displayName, String defaultValue, Boolean secure, String displayOrder) {
+        super(key, displayName, defaultValue, false, secure, displayOrder);
+    }
+
+    @Override
+    public String doValidate(String input) {
+        if (StringUtils.isBlank(input)) {
+            return null;
+        }
+        return super.doValidate(input);
+    }
+}
@@ -18,6 +18,7 @@ package cd.go.contrib.elasticagents.openstack.requests;
 
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.executors.ClusterProfilePropertiesValidateRequestExecutor;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
@@ -26,7 +27,7 @@ import java.util.Map;
 
 public class ClusterProfileValidateRequest {
 
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Gsons.DEFAULT;
     private Map<String, String> properties;
 
     public ClusterProfileValidateRequest(Map<String, String> properties) {
@@ -22,9 +22,8 @@ import cd.go.contrib.elasticagents.openstack.client.OpenStackInstances;
 import cd.go.contrib.elasticagents.openstack.executors.CreateAgentRequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
 import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 
 import java.util.Map;
@@ -33,10 +32,7 @@ import java.util.Map;
  * see https://plugin-api.gocd.io/current/elastic-agents/#create-agent
  */
 public class CreateAgentRequest {
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .excludeFieldsWithoutExposeAnnotation()
-            .create();
+    public static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
     @Expose
     private String autoRegisterKey;
     @Expose
@@ -20,9 +20,8 @@ import cd.go.contrib.elasticagents.openstack.PluginSettings;
 import cd.go.contrib.elasticagents.openstack.executors.MigrateConfigurationRequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfile;
 import cd.go.contrib.elasticagents.openstack.model.ElasticAgentProfile;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -30,10 +29,7 @@ import java.util.List;
 import java.util.Objects;
 
 public class MigrateConfigurationRequest {
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .excludeFieldsWithoutExposeAnnotation()
-            .create();
+    public static final Gson GSON = Gsons.UNDERSCORES_EXPOSED;
 
     @Expose
     @SerializedName("plugin_settings")
@@ -18,13 +18,14 @@ package cd.go.contrib.elasticagents.openstack.requests;
 
 import cd.go.contrib.elasticagents.openstack.RequestExecutor;
 import cd.go.contrib.elasticagents.openstack.executors.ProfileValidateRequestExecutor;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
 
 import java.util.Map;
 
 public class ProfileValidateRequest {
 
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Gsons.DEFAULT;
     private Map<String, String> properties;
 
     public ProfileValidateRequest(Map<String, String> properties) {
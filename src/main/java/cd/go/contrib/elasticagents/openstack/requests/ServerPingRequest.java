@@ -20,9 +20,8 @@ import cd.go.contrib.elasticagents.openstack.PluginRequest;
 import cd.go.contrib.elasticagents.openstack.client.OpenStackInstances;
 import cd.go.contrib.elasticagents.openstack.executors.ServerPingRequestExecutor;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,7 +29,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 public class ServerPingRequest {
-    private static final Gson GSON = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
+    private static final Gson GSON = Gsons.UNDERSCORES;
 
     private List<ClusterProfileProperties> allClusterProfileProperties = new ArrayList<>();
 
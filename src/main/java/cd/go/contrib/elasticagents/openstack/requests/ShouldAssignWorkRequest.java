@@ -22,16 +22,15 @@ import cd.go.contrib.elasticagents.openstack.executors.ShouldAssignWorkRequestEx
 import cd.go.contrib.elasticagents.openstack.model.Agent;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
 import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
-import com.google.gson.FieldNamingPolicy;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
 import java.util.Map;
 
 public class ShouldAssignWorkRequest {
-    public static final Gson GSON = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
+    public static final Gson GSON = Gsons.UNDERSCORES;
 
     @Expose
     @SerializedName("job_identifier")
@@ -78,11 +77,7 @@ public class ShouldAssignWorkRequest {
     }
 
     public String toJson() {
-        Gson gson = new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .setPrettyPrinting()
-                .create();
-        return gson.toJson(this);
+        return Gsons.UNDERSCORES_PRETTY.toJson(this);
     }
 
     @Override
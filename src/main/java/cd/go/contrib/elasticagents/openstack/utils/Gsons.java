@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cd.go.contrib.elasticagents.openstack.utils;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
+import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
+import cd.go.contrib.elasticagents.openstack.requests.*;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The {@link Gson} instances used by the plugin. Gson is thread-safe and caches the type adapters it builds,
+ * so sharing the instances means each adapter is only built once instead of on every plugin message.
+ */
+public final class Gsons {
+    /**
+     * Plain field names.
+     */
+    public static final Gson DEFAULT = new Gson();
+
+    /**
+     * Plain field names, only fields annotated with {@link com.google.gson.annotations.Expose}.
+     */
+    public static final Gson EXPOSED = new GsonBuilder()
+            .excludeFieldsWithoutExposeAnnotation()
+            .create();
+
+    /**
+     * Field names in lower case with underscores.
+     */
+    public static final Gson UNDERSCORES = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .create();
+
+    /**
+     * Field names in lower case with underscores, only fields annotated with {@link com.google.gson.annotations.Expose}.
+     */
+    public static final Gson UNDERSCORES_EXPOSED = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .excludeFieldsWithoutExposeAnnotation()
+            .create();
+
+    /**
+     * Pretty printed {@link #UNDERSCORES}, used for logging.
+     */
+    public static final Gson UNDERSCORES_PRETTY = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .setPrettyPrinting()
+            .create();
+
+    /**
+     * Pretty printed {@link #UNDERSCORES_EXPOSED}.
+     */
+    public static final Gson UNDERSCORES_EXPOSED_PRETTY = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .excludeFieldsWithoutExposeAnnotation()
+            .setPrettyPrinting()
+            .create();
+
+    private Gsons() {
+    }
+
+    /**
+     * Build the type adapters of the messages exchanged with the GoCD server up front, so that the first requests
+     * after the plugin is loaded do not pay for reflection.
+     */
+    public static void preload() {
+        UNDERSCORES.getAdapter(Agent.class);
+        UNDERSCORES.getAdapter(ShouldAssignWorkRequest.class);
+        UNDERSCORES.getAdapter(ServerPingRequest.class);
+        UNDERSCORES_EXPOSED.getAdapter(JobIdentifier.class);
+        UNDERSCORES_EXPOSED.getAdapter(PluginSettings.class);
+        UNDERSCORES_EXPOSED.getAdapter(ClusterProfileProperties.class);
+        UNDERSCORES_EXPOSED.getAdapter(CreateAgentRequest.class);
+        UNDERSCORES_EXPOSED.getAdapter(JobCompletionRequest.class);
+        UNDERSCORES_EXPOSED.getAdapter(MigrateConfigurationRequest.class);
+        UNDERSCORES_EXPOSED.getAdapter(UpdateClusterConfigurationRequest.class);
+        UNDERSCORES_EXPOSED_PRETTY.getAdapter(ClusterProfileProperties.class);
+    }
+}
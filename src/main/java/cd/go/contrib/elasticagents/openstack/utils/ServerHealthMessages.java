@@ -1,6 +1,5 @@
 package cd.go.contrib.elasticagents.openstack.utils;
 
-import com.google.gson.Gson;
 import org.cache2k.Cache;
 import org.cache2k.Cache2kBuilder;
 
@@ -46,8 +45,7 @@ public class ServerHealthMessages {
     }
 
     public String getJSON() {
-        Gson gson = new Gson();
-        return gson.toJson(getMessages(), List.class);
+        return Gsons.DEFAULT.toJson(getMessages(), List.class);
     }
 
     public enum Type {
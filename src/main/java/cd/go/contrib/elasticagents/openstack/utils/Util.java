@@ -20,19 +20,22 @@ import cd.go.contrib.elasticagents.openstack.executors.GetClusterProfileViewRequ
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Properties;
 import java.util.Random;
 
 public class Util {
 
-    public static final Gson GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    public static final Gson GSON = Gsons.EXPOSED;
 
     public static String readResource(String resourceFile) {
         try (InputStreamReader reader = new InputStreamReader(GetClusterProfileViewRequestExecutor.class.getResourceAsStream(resourceFile), StandardCharsets.UTF_8)) {
@@ -87,4 +90,27 @@ public class Util {
         }
         return result;
     }
+
+    /**
+     * SHA-256 of the values, as hex. Every value is prefixed with its length, so that null values and different
+     * splits of the same characters give different hashes.
+     */
+    public static String sha256Hex(String... values) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String value : values) {
+            if (value == null) {
+                digest.update(ByteBuffer.allocate(4).putInt(-1).array());
+            } else {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgentsTest {
+
+    @Test
+    public void shouldIndexAgentsFromListAgentsResponse() {
+        String json = "[{\"agent_id\":\"i-1\",\"agent_state\":\"Idle\",\"build_state\":\"Idle\",\"config_state\":\"Enabled\"}," +
+                "{\"agent_id\":\"i-2\",\"agent_state\":\"Building\",\"build_state\":\"Building\",\"config_state\":\"Enabled\"}]";
+
+        Agents agents = Agents.fromJSONArray(json);
+
+        assertEquals(2, agents.agents().size());
+        assertEquals(Agent.AgentState.Building, agents.find("i-2").agentState());
+        assertEquals(1, agents.findAgentsToDisable().size());
+    }
+
+    @Test
+    public void shouldParseEmptyResponse() {
+        assertTrue(Agents.fromJSONArray("[]").agents().isEmpty());
+        assertTrue(Agents.fromJSONArray("null").agents().isEmpty());
+    }
+
+    @Test
+    public void shouldReturnReadOnlyViews() {
+        Agents agents = Agents.fromJSONArray("[{\"agent_id\":\"i-1\"}]");
+
+        assertThrows(UnsupportedOperationException.class, () -> agents.agents().clear());
+        assertThrows(UnsupportedOperationException.class, () -> agents.agentIds().remove("i-1"));
+        assertThrows(UnsupportedOperationException.class, () -> agents.add(new Agent("i-2", Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled)));
+        assertEquals(1, agents.agents().size());
+    }
+}
@@ -0,0 +1,55 @@
+package cd.go.contrib.elasticagents.openstack;
+
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+public class PingScopedPluginRequestTest {
+
+    private PluginRequest delegate;
+    private PingScopedPluginRequest pluginRequest;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        delegate = mock(PluginRequest.class);
+        when(delegate.listAgents()).thenAnswer(invocation -> new Agents());
+        pluginRequest = new PingScopedPluginRequest(delegate);
+    }
+
+    @Test
+    public void shouldListAgentsOncePerPing() throws Exception {
+        Agents first = pluginRequest.listAgents();
+        Agents second = pluginRequest.listAgents();
+
+        assertSame(first, second);
+        verify(delegate, times(1)).listAgents();
+    }
+
+    @Test
+    public void shouldListAgentsAgainAfterAgentsWereDisabled() throws Exception {
+        final List<Agent> agents = Collections.singletonList(new Agent("id1"));
+        pluginRequest.listAgents();
+
+        pluginRequest.disableAgents(agents);
+        pluginRequest.listAgents();
+
+        verify(delegate).disableAgents(agents);
+        verify(delegate, times(2)).listAgents();
+    }
+
+    @Test
+    public void shouldKeepSnapshotWhenNothingWasDeleted() throws Exception {
+        pluginRequest.listAgents();
+
+        pluginRequest.deleteAgents(Collections.emptyList());
+        pluginRequest.listAgents();
+
+        verify(delegate, times(1)).listAgents();
+    }
+}
@@ -0,0 +1,39 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BootPermitsTest {
+
+    @Test
+    public void shouldApplyLowerLimitOnceBootsInFlightRelease() throws Exception {
+        BootPermits permits = new BootPermits(2);
+        permits.acquire();
+        permits.acquire();
+
+        permits.resize(1);
+        permits.release();
+
+        assertEquals(1, permits.limit());
+        assertFalse(permits.tryAcquire());
+        permits.release();
+        assertTrue(permits.tryAcquire());
+        assertFalse(permits.tryAcquire());
+    }
+
+    @Test
+    public void shouldHandOutMorePermitsAfterRaisingLimit() throws Exception {
+        BootPermits permits = new BootPermits(1);
+        permits.acquire();
+
+        permits.resize(3);
+
+        assertEquals(3, permits.limit());
+        assertTrue(permits.tryAcquire());
+        assertTrue(permits.tryAcquire());
+        assertFalse(permits.tryAcquire());
+    }
+}
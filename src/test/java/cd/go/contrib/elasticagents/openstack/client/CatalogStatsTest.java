@@ -0,0 +1,36 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CatalogStatsTest {
+
+    @Test
+    public void shouldCountLookupsAndLoads() {
+        CatalogStats stats = new CatalogStats();
+        stats.hit();
+        stats.hit();
+        stats.miss();
+        stats.unknownHit();
+        stats.loaded(Duration.ofMillis(10).toNanos());
+        stats.loaded(Duration.ofMillis(30).toNanos());
+        stats.loadFailed();
+
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.unknownHits());
+        assertEquals(2, stats.loads());
+        assertEquals(1, stats.loadFailures());
+        assertEquals(Duration.ofMillis(20), stats.averageLoadTime());
+        assertEquals(Duration.ofMillis(30), stats.maxLoadTime());
+        assertEquals("hits=2 misses=1 unknownHits=1 loads=2 loadFailures=1 averageLoad=20ms maxLoad=30ms", stats.toString());
+    }
+
+    @Test
+    public void shouldHaveNoLoadTimeBeforeFirstLoad() {
+        assertEquals(Duration.ZERO, new CatalogStats().averageLoadTime());
+    }
+}
@@ -0,0 +1,531 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP fake of the parts of Keystone (v2.0 and v3), Nova and Glance that the plugin uses, so that the
+ * whole {@link OpenStackClientFactory} to {@link OpenStackInstances} stack can run without a cloud.
+ * <p>
+ * Every call waits {@link #latency(Duration)} and fails with a 500 at {@link #errorRate(double)}. Boots beyond
+ * {@link #maxServers(int)} are refused like an exceeded quota, and booted servers stay in BUILD for
+ * {@link #bootDelay(Duration)} before going ACTIVE, or ERROR at {@link #bootFailureRate(double)}.
+ * All settings can be changed while the server is running.
+ */
+public class FakeOpenStack implements AutoCloseable {
+    private static final Pattern SERVER = Pattern.compile("/compute/v2\\.1/servers/([^/]+)");
+    private static final Pattern FLAVOR = Pattern.compile("/compute/v2\\.1/flavors/([^/]+)");
+    private static final Pattern COMPUTE_IMAGE = Pattern.compile("/compute/v2\\.1/images/([^/]+)");
+    private static final Pattern GLANCE_IMAGE = Pattern.compile("/image/v2/images/([^/]+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, FakeServer> servers = new ConcurrentHashMap<>();
+    private final Map<String, String> images = new ConcurrentHashMap<>();
+    private final Map<String, String> flavors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final Object quotaLock = new Object();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int maxServers = Integer.MAX_VALUE;
+    private volatile Duration bootDelay = Duration.ZERO;
+    private volatile double bootFailureRate;
+    private volatile Duration tokenTtl = Duration.ofHours(1);
+    private volatile Clock clock = Clock.systemUTC();
+
+    public FakeOpenStack() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-openstack");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String keystoneV3Endpoint() {
+        return baseUrl() + "/v3";
+    }
+
+    public String keystoneV2Endpoint() {
+        return baseUrl() + "/v2.0";
+    }
+
+    private String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public FakeOpenStack withImage(String id, String name) {
+        images.put(id, name);
+        return this;
+    }
+
+    public FakeOpenStack withFlavor(String id, String name) {
+        flavors.put(id, name);
+        return this;
+    }
+
+    public FakeOpenStack latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public FakeOpenStack errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public FakeOpenStack maxServers(int maxServers) {
+        this.maxServers = maxServers;
+        return this;
+    }
+
+    public FakeOpenStack bootDelay(Duration bootDelay) {
+        this.bootDelay = bootDelay;
+        return this;
+    }
+
+    public FakeOpenStack bootFailureRate(double bootFailureRate) {
+        this.bootFailureRate = bootFailureRate;
+        return this;
+    }
+
+    public FakeOpenStack tokenTtl(Duration tokenTtl) {
+        this.tokenTtl = tokenTtl;
+        return this;
+    }
+
+    /**
+     * Time source for the life cycle of servers, such as when a boot finishes. Tokens always use the system clock.
+     */
+    public FakeOpenStack clock(Clock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Add an ACTIVE server directly, without an API call.
+     *
+     * @return the id of the server
+     */
+    public String addServer(String name, String imageId, String flavorId) {
+        final FakeServer fakeServer = new FakeServer(name, imageId, flavorId, Collections.emptyMap(), clock.instant(), Duration.ZERO, false);
+        servers.put(fakeServer.id, fakeServer);
+        return fakeServer.id;
+    }
+
+    /**
+     * Number of servers that are not deleted.
+     */
+    public int serverCount() {
+        return (int) servers.values().stream().filter(fakeServer -> fakeServer.deletedAt == null).count();
+    }
+
+    /**
+     * Ids of the servers that are ACTIVE, that is booted and not failed or deleted.
+     */
+    public Set<String> activeServerIds() {
+        Set<String> ids = new HashSet<>();
+        servers.values().stream().filter(fakeServer -> "ACTIVE".equals(fakeServer.status())).forEach(fakeServer -> ids.add(fakeServer.id));
+        return ids;
+    }
+
+    /**
+     * Number of servers that were deleted.
+     */
+    public int deletedServerCount() {
+        return (int) servers.values().stream().filter(fakeServer -> fakeServer.deletedAt != null).count();
+    }
+
+    /**
+     * Time all servers existed for, from creation until deletion or now.
+     */
+    public Duration serverTime() {
+        final Instant now = clock.instant();
+        Duration total = Duration.ZERO;
+        for (FakeServer fakeServer : servers.values()) {
+            final Instant end = fakeServer.deletedAt == null ? now : fakeServer.deletedAt;
+            total = total.plus(Duration.between(fakeServer.created, end));
+        }
+        return total;
+    }
+
+    /**
+     * Number of calls to an API, for example {@code "POST /servers"} or {@code "GET /servers/detail"}.
+     */
+    public long requestCount(String api) {
+        final LongAdder count = requestCounts.get(api);
+        return count == null ? 0 : count.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(method + " " + api(path), key -> new LongAdder()).increment();
+            sleep(latency);
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 500, fault("computeFault", 500, "Injected failure"));
+                return;
+            }
+            route(exchange, method, path);
+        } catch (RuntimeException e) {
+            respond(exchange, 500, fault("computeFault", 500, String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path) throws IOException {
+        Matcher matcher;
+        if ("POST".equals(method) && "/v3/auth/tokens".equals(path)) {
+            exchange.getResponseHeaders().add("X-Subject-Token", UUID.randomUUID().toString());
+            respond(exchange, 201, tokenV3());
+        } else if ("POST".equals(method) && "/v2.0/tokens".equals(path)) {
+            respond(exchange, 200, accessV2());
+        } else if ("GET".equals(method) && "/compute/v2.1/servers/detail".equals(path)) {
+            respond(exchange, 200, Collections.singletonMap("servers", listServers(query(exchange))));
+        } else if ("POST".equals(method) && "/compute/v2.1/servers".equals(path)) {
+            boot(exchange);
+        } else if ((matcher = SERVER.matcher(path)).matches()) {
+            final FakeServer fakeServer = servers.get(matcher.group(1));
+            if (fakeServer == null || fakeServer.deletedAt != null) {
+                respond(exchange, 404, fault("itemNotFound", 404, "Instance " + matcher.group(1) + " could not be found."));
+            } else if ("DELETE".equals(method)) {
+                fakeServer.deletedAt = clock.instant();
+                respond(exchange, 204, null);
+            } else {
+                respond(exchange, 200, Collections.singletonMap("server", fakeServer.toJson()));
+            }
+        } else if ("GET".equals(method) && "/compute/v2.1/flavors/detail".equals(path)) {
+            respond(exchange, 200, Collections.singletonMap("flavors", list(flavors, this::flavor)));
+        } else if ("GET".equals(method) && (matcher = FLAVOR.matcher(path)).matches()) {
+            respondWithItem(exchange, "flavor", flavors, matcher.group(1), this::flavor);
+        } else if ("GET".equals(method) && "/compute/v2.1/images/detail".equals(path)) {
+            respond(exchange, 200, Collections.singletonMap("images", list(images, this::image)));
+        } else if ("GET".equals(method) && (matcher = COMPUTE_IMAGE.matcher(path)).matches()) {
+            respondWithItem(exchange, "image", images, matcher.group(1), this::image);
+        } else if ("GET".equals(method) && "/image/v2/images".equals(path)) {
+            respond(exchange, 200, Collections.singletonMap("images", list(images, this::image)));
+        } else if ("GET".equals(method) && (matcher = GLANCE_IMAGE.matcher(path)).matches() && images.containsKey(matcher.group(1))) {
+            respond(exchange, 200, image(matcher.group(1), images.get(matcher.group(1))));
+        } else {
+            respond(exchange, 404, fault("itemNotFound", 404, "No route for " + method + " " + path));
+        }
+    }
+
+    private void boot(HttpExchange exchange) throws IOException {
+        final JsonObject body;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            body = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("server");
+        }
+        final String imageId = body.get("imageRef").getAsString();
+        final String flavorId = body.get("flavorRef").getAsString();
+        if (!images.containsKey(imageId)) {
+            respond(exchange, 400, fault("badRequest", 400, "Can not find requested image"));
+            return;
+        }
+        if (!flavors.containsKey(flavorId)) {
+            respond(exchange, 400, fault("badRequest", 400, "Flavor " + flavorId + " could not be found."));
+            return;
+        }
+        Map<String, String> metadata = new HashMap<>();
+        if (body.has("metadata")) {
+            body.getAsJsonObject("metadata").entrySet().forEach(entry -> metadata.put(entry.getKey(), entry.getValue().getAsString()));
+        }
+        final FakeServer fakeServer;
+        synchronized (quotaLock) {
+            final int used = serverCount();
+            if (used >= maxServers) {
+                respond(exchange, 403, fault("forbidden", 403, String.format(
+                        "Quota exceeded for instances: Requested 1, but already used %d of %d instances", used, maxServers)));
+                return;
+            }
+            final boolean fails = bootFailureRate > 0 && ThreadLocalRandom.current().nextDouble() < bootFailureRate;
+            fakeServer = new FakeServer(body.get("name").getAsString(), imageId, flavorId, metadata, clock.instant(), bootDelay, fails);
+            servers.put(fakeServer.id, fakeServer);
+        }
+        Map<String, Object> created = new LinkedHashMap<>();
+        created.put("id", fakeServer.id);
+        created.put("adminPass", "secret");
+        created.put("links", Collections.emptyList());
+        respond(exchange, 202, Collections.singletonMap("server", created));
+    }
+
+    private List<Map<String, Object>> listServers(Map<String, String> query) {
+        final Pattern name = query.containsKey("name") ? Pattern.compile(query.get("name")) : null;
+        final Instant changesSince = query.containsKey("changes-since") ? Instant.parse(query.get("changes-since")) : null;
+        List<Map<String, Object>> listing = new ArrayList<>();
+        for (FakeServer fakeServer : servers.values()) {
+            if (name != null && !name.matcher(fakeServer.name).find()) {
+                continue;
+            }
+            if (changesSince == null ? fakeServer.deletedAt != null : fakeServer.updated().isBefore(changesSince)) {
+                continue;
+            }
+            listing.add(fakeServer.toJson());
+        }
+        return listing;
+    }
+
+    private void respondWithItem(HttpExchange exchange, String type, Map<String, String> items, String id,
+                                 ItemRenderer renderer) throws IOException {
+        if (items.containsKey(id)) {
+            respond(exchange, 200, Collections.singletonMap(type, renderer.render(id, items.get(id))));
+        } else {
+            respond(exchange, 404, fault("itemNotFound", 404, type + " " + id + " could not be found."));
+        }
+    }
+
+    private List<Map<String, Object>> list(Map<String, String> items, ItemRenderer renderer) {
+        List<Map<String, Object>> listing = new ArrayList<>();
+        items.forEach((id, name) -> listing.add(renderer.render(id, name)));
+        return listing;
+    }
+
+    private Map<String, Object> image(String id, String name) {
+        Map<String, Object> image = new LinkedHashMap<>();
+        image.put("id", id);
+        image.put("name", name);
+        image.put("status", "ACTIVE");
+        image.put("minDisk", 0);
+        image.put("minRam", 0);
+        image.put("progress", 100);
+        image.put("metadata", Collections.emptyMap());
+        return image;
+    }
+
+    private Map<String, Object> flavor(String id, String name) {
+        Map<String, Object> flavor = new LinkedHashMap<>();
+        flavor.put("id", id);
+        flavor.put("name", name);
+        flavor.put("ram", 2048);
+        flavor.put("vcpus", 1);
+        flavor.put("disk", 20);
+        flavor.put("swap", 0);
+        flavor.put("rxtx_factor", 1.0);
+        flavor.put("os-flavor-access:is_public", true);
+        return flavor;
+    }
+
+    private Map<String, Object> tokenV3() {
+        Map<String, Object> project = new LinkedHashMap<>();
+        project.put("id", "fake-project");
+        project.put("name", "tenant");
+        project.put("domain", Map.of("id", "default", "name", "Default"));
+
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("methods", Collections.singletonList("password"));
+        token.put("issued_at", timestamp(Instant.now()));
+        token.put("expires_at", timestamp(Instant.now().plus(tokenTtl)));
+        token.put("project", project);
+        token.put("user", Map.of("id", "fake-user", "name", "user", "domain", Map.of("id", "default", "name", "Default")));
+        token.put("catalog", Arrays.asList(
+                serviceV3("compute", "nova", baseUrl() + "/compute/v2.1"),
+                serviceV3("image", "glance", baseUrl() + "/image")));
+        return Collections.singletonMap("token", token);
+    }
+
+    private Map<String, Object> serviceV3(String type, String name, String url) {
+        Map<String, Object> endpoint = new LinkedHashMap<>();
+        endpoint.put("id", name + "-public");
+        endpoint.put("interface", "public");
+        endpoint.put("region", "RegionOne");
+        endpoint.put("region_id", "RegionOne");
+        endpoint.put("url", url);
+        Map<String, Object> service = new LinkedHashMap<>();
+        service.put("id", name);
+        service.put("type", type);
+        service.put("name", name);
+        service.put("endpoints", Collections.singletonList(endpoint));
+        return service;
+    }
+
+    private Map<String, Object> accessV2() {
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("id", UUID.randomUUID().toString());
+        token.put("issued_at", timestamp(Instant.now()));
+        token.put("expires", timestamp(Instant.now().plus(tokenTtl)));
+        token.put("tenant", Map.of("id", "fake-project", "name", "tenant", "enabled", true));
+
+        Map<String, Object> access = new LinkedHashMap<>();
+        access.put("token", token);
+        access.put("serviceCatalog", Arrays.asList(
+                serviceV2("compute", "nova", baseUrl() + "/compute/v2.1"),
+                serviceV2("image", "glance", baseUrl() + "/image")));
+        access.put("user", Map.of("id", "fake-user", "name", "user", "username", "user", "roles", Collections.emptyList()));
+        return Collections.singletonMap("access", access);
+    }
+
+    private Map<String, Object> serviceV2(String type, String name, String url) {
+        Map<String, Object> endpoint = new LinkedHashMap<>();
+        endpoint.put("region", "RegionOne");
+        endpoint.put("publicURL", url);
+        endpoint.put("internalURL", url);
+        endpoint.put("adminURL", url);
+        Map<String, Object> service = new LinkedHashMap<>();
+        service.put("type", type);
+        service.put("name", name);
+        service.put("endpoints", Collections.singletonList(endpoint));
+        service.put("endpoints_links", Collections.emptyList());
+        return service;
+    }
+
+    private static Map<String, Object> fault(String type, int code, String message) {
+        Map<String, Object> fault = new LinkedHashMap<>();
+        fault.put("code", code);
+        fault.put("message", message);
+        return Collections.singletonMap(type, fault);
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        final byte[] bytes = Gsons.DEFAULT.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        final String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            final int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Path with ids replaced, so that calls are counted per API.
+     */
+    private static String api(String path) {
+        final String api = path.replaceFirst("^/compute/v2\\.1", "").replaceFirst("^/image", "");
+        if (api.endsWith("/detail")) {
+            return api;
+        }
+        return api.replaceFirst("^/(servers|flavors|images|v2/images)/[^/]+$", "/$1/{id}");
+    }
+
+    private static String timestamp(Instant instant) {
+        return DateTimeFormatter.ISO_INSTANT.format(instant.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface ItemRenderer {
+        Map<String, Object> render(String id, String name);
+    }
+
+    private class FakeServer {
+        private final String id = UUID.randomUUID().toString();
+        private final String name;
+        private final String imageId;
+        private final String flavorId;
+        private final Map<String, String> metadata;
+        private final Instant created;
+        private final Instant bootedAt;
+        private final boolean fails;
+        private volatile Instant deletedAt;
+
+        FakeServer(String name, String imageId, String flavorId, Map<String, String> metadata, Instant created,
+                   Duration bootDelay, boolean fails) {
+            this.name = name;
+            this.imageId = imageId;
+            this.flavorId = flavorId;
+            this.metadata = metadata;
+            this.created = created;
+            this.bootedAt = created.plus(bootDelay);
+            this.fails = fails;
+        }
+
+        String status() {
+            if (deletedAt != null) {
+                return "DELETED";
+            }
+            if (clock.instant().isBefore(bootedAt)) {
+                return "BUILD";
+            }
+            return fails ? "ERROR" : "ACTIVE";
+        }
+
+        Instant updated() {
+            if (deletedAt != null) {
+                return deletedAt;
+            }
+            return clock.instant().isBefore(bootedAt) ? created : bootedAt;
+        }
+
+        Map<String, Object> toJson() {
+            final String status = status();
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", id);
+            json.put("name", name);
+            json.put("status", status);
+            json.put("created", timestamp(created));
+            json.put("updated", timestamp(updated()));
+            json.put("image", Collections.singletonMap("id", imageId));
+            json.put("flavor", Collections.singletonMap("id", flavorId));
+            json.put("metadata", metadata);
+            json.put("addresses", Collections.emptyMap());
+            json.put("tenant_id", "fake-project");
+            json.put("user_id", "fake-user");
+            if ("ERROR".equals(status)) {
+                json.put("fault", Map.of("code", 500, "message", "No valid host was found.", "created", timestamp(bootedAt)));
+            }
+            return json;
+        }
+    }
+}
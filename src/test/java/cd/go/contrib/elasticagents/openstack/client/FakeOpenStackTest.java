@@ -0,0 +1,166 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import cd.go.contrib.elasticagents.openstack.TestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstack4j.api.Builders;
+import org.openstack4j.api.exceptions.OS4JException;
+import org.openstack4j.model.compute.Server;
+import org.openstack4j.model.compute.ServerCreate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static cd.go.contrib.elasticagents.openstack.TestHelper.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs {@link OpenstackClientWrapper} with the real openstack4j client against {@link FakeOpenStack}.
+ */
+public class FakeOpenStackTest {
+
+    private FakeOpenStack openStack;
+    private OpenstackClientWrapper client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        openStack = new FakeOpenStack()
+                .withImage(IMAGE_ID1, IMAGE_UBUNTU_14)
+                .withFlavor(FLAVOR_ID1, FLAVOR_M1_SMALL);
+        client = new OpenstackClientWrapper(pluginSettings("3", openStack.keystoneV3Endpoint()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        openStack.close();
+    }
+
+    @Test
+    public void shouldResolveImageAndFlavorNames() throws ImageNotFoundException {
+        assertEquals(IMAGE_ID1, client.getImageId(IMAGE_UBUNTU_14, "tx"));
+        assertEquals(FLAVOR_ID1, client.getFlavorId(FLAVOR_M1_SMALL, "tx"));
+        assertEquals(IMAGE_ID1, client.getImageId(IMAGE_ID1, "tx"));
+    }
+
+    @Test
+    public void shouldAuthenticateWithKeystoneV2() throws IOException {
+        client = new OpenstackClientWrapper(pluginSettings("2", openStack.keystoneV2Endpoint()));
+
+        client.listServers("prefix-");
+
+        assertEquals(1, openStack.requestCount("POST /v2.0/tokens"));
+        assertEquals(1, openStack.requestCount("GET /servers/detail"));
+    }
+
+    @Test
+    public void shouldReuseTokenAcrossCalls() {
+        client.listServers("prefix-");
+        client.listServers("prefix-");
+
+        assertEquals(1, openStack.requestCount("POST /v3/auth/tokens"));
+        assertEquals(2, openStack.requestCount("GET /servers/detail"));
+    }
+
+    @Test
+    public void shouldBootListAndTerminateServers() throws InstanceNotFoundException {
+        final Server booted = client.bootServer(serverCreate("prefix-1"));
+
+        final Server server = client.getServer(booted.getId());
+        assertEquals(Server.Status.ACTIVE, server.getStatus());
+        assertEquals(IMAGE_ID1, server.getImageId());
+        assertEquals(FLAVOR_ID1, server.getFlavorId());
+        assertEquals(1, client.listServers("prefix-").size());
+        assertTrue(client.instanceNameExists("prefix-1"));
+
+        assertTrue(client.terminate(booted.getId()).isSuccess());
+        assertEquals(404, client.terminate(booted.getId()).getCode());
+        assertTrue(client.listServers("prefix-").isEmpty());
+        assertEquals(0, openStack.serverCount());
+    }
+
+    @Test
+    public void shouldReportDeletedServersAsChanged() {
+        final String id = openStack.addServer("prefix-1", IMAGE_ID1, FLAVOR_ID1);
+        final Instant since = Instant.now();
+
+        client.terminate(id);
+
+        final List<Server> changes = client.listServersChangedSince("prefix-", since);
+        assertEquals(1, changes.size());
+        assertEquals(Server.Status.DELETED, changes.get(0).getStatus());
+    }
+
+    @Test
+    public void shouldKeepServersInBuildForBootDelay() {
+        final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+        final Clock clock = mock(Clock.class);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+        openStack.clock(clock).bootDelay(Duration.ofMinutes(5));
+
+        final Server booted = client.bootServer(serverCreate("prefix-1"));
+
+        assertEquals(Server.Status.BUILD, client.getServer(booted.getId()).getStatus());
+        now.set(now.get().plus(Duration.ofMinutes(6)));
+        assertEquals(Server.Status.ACTIVE, client.getServer(booted.getId()).getStatus());
+    }
+
+    @Test
+    public void shouldPutFailedBootsInError() throws Exception {
+        openStack.bootFailureRate(1.0);
+
+        final Server booted = client.bootServer(serverCreate("prefix-1"));
+
+        final Server server = client.getServer(booted.getId());
+        assertEquals(Server.Status.ERROR, server.getStatus());
+        assertNotNull(server.getFault());
+    }
+
+    @Test
+    public void shouldRefuseBootsBeyondQuota() {
+        openStack.maxServers(1);
+        client.bootServer(serverCreate("prefix-1"));
+
+        assertThrows(OS4JException.class, () -> client.bootServer(serverCreate("prefix-2")));
+        assertEquals(1, openStack.serverCount());
+    }
+
+    @Test
+    public void shouldInjectErrorsAndLatency() {
+        client.listServers("prefix-");
+        openStack.latency(Duration.ofMillis(100)).errorRate(1.0);
+
+        final long started = System.nanoTime();
+        assertThrows(OS4JException.class, () -> client.listServers("prefix-"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() >= 100);
+    }
+
+    private ServerCreate serverCreate(String name) {
+        return Builders.server()
+                .name(name)
+                .image(IMAGE_ID1)
+                .flavor(FLAVOR_ID1)
+                .networks(Collections.singletonList("780f2cfc-389b-4cc5-9b85-ed03a73975ee"))
+                .addMetadata(Collections.singletonMap("go_agent", "true"))
+                .build();
+    }
+
+    /**
+     * Sessions are kept per cluster settings, so the user is unique to start every test without a session.
+     */
+    private static PluginSettings pluginSettings(String keystoneVersion, String endpoint) throws IOException {
+        return PluginSettings.fromJSON(TestHelper.resourceAsString("/plugin-settings_ID1.json")
+                .replace("https://openstack.example.com:13000/v3", endpoint)
+                .replace("\"openstack_user\": \"user\"", "\"openstack_user\": \"user-" + UUID.randomUUID() + "\"")
+                .replace("\"openstack_keystone_version\": \"3\"", "\"openstack_keystone_version\": \"" + keystoneVersion + "\""));
+    }
+}
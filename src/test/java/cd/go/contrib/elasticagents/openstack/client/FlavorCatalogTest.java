@@ -0,0 +1,73 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstack4j.model.compute.Flavor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FlavorCatalogTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private FlavorCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = new FlavorCatalog();
+    }
+
+    @Test
+    public void shouldFindFlavorByIdAndName() {
+        Flavor small = flavor("1", "m1.small");
+        catalog.replace(Arrays.asList(small, flavor("2", null)), T0);
+
+        assertSame(small, catalog.flavor("1"));
+        assertSame(small, catalog.flavor("m1.small"));
+        assertEquals("2", catalog.flavor("2").getId());
+        assertNull(catalog.flavor("m1.large"));
+    }
+
+    @Test
+    public void shouldPreferIdOverName() {
+        Flavor byId = flavor("m1.small", "custom");
+        catalog.replace(Arrays.asList(flavor("1", "m1.small"), byId), T0);
+
+        assertSame(byId, catalog.flavor("m1.small"));
+    }
+
+    @Test
+    public void shouldBeOutdatedAfterRefreshPeriod() {
+        assertTrue(catalog.isOlderThan(Duration.ofHours(1), T0));
+
+        catalog.replace(Collections.emptyList(), T0);
+
+        assertFalse(catalog.isOlderThan(Duration.ofHours(1), T0.plusSeconds(60)));
+        assertTrue(catalog.isOlderThan(Duration.ofHours(1), T0.plus(Duration.ofHours(1))));
+    }
+
+    @Test
+    public void shouldBeOutdatedWhenMarkedUntilNextListing() {
+        catalog.replace(Collections.emptyList(), T0);
+
+        catalog.markOutdated();
+        assertTrue(catalog.isOlderThan(Duration.ofHours(1), T0.plusSeconds(60)));
+
+        catalog.replace(Collections.singletonList(flavor("3", "m1.large")), T0.plusSeconds(60));
+        assertFalse(catalog.isOlderThan(Duration.ofHours(1), T0.plusSeconds(120)));
+    }
+
+    private static Flavor flavor(String id, String name) {
+        Flavor flavor = mock(Flavor.class);
+        when(flavor.getId()).thenReturn(id);
+        when(flavor.getName()).thenReturn(name);
+        return flavor;
+    }
+}
@@ -0,0 +1,114 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstack4j.model.compute.Image;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImageCatalogTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private ImageCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = new ImageCatalog();
+    }
+
+    @Test
+    public void shouldResolveByIdAndName() {
+        catalog.replace(Arrays.asList(image("id-1", "ubuntu", T0), image("id-2", null, T0)), T0);
+
+        assertEquals("id-1", catalog.imageId("id-1"));
+        assertEquals("id-1", catalog.imageId("ubuntu"));
+        assertEquals("id-2", catalog.imageId("id-2"));
+        assertNull(catalog.imageId("centos"));
+    }
+
+    @Test
+    public void shouldResolveNameToMostRecentlyCreatedImage() {
+        catalog.replace(Arrays.asList(image("new", "ubuntu", T0.plusSeconds(60)), image("old", "ubuntu", T0)), T0.plusSeconds(120));
+
+        assertEquals("new", catalog.imageId("ubuntu"));
+        assertEquals("old", catalog.previousImageId("ubuntu"));
+    }
+
+    @Test
+    public void shouldRememberPreviousImageAfterItIsGone() {
+        catalog.replace(Collections.singletonList(image("id-1", "ubuntu", T0)), T0);
+        assertEquals("", catalog.previousImageId("ubuntu"));
+
+        catalog.replace(Collections.singletonList(image("id-2", "ubuntu", T0.plusSeconds(60))), T0.plusSeconds(60));
+        assertEquals("id-2", catalog.imageId("ubuntu"));
+        assertEquals("id-1", catalog.previousImageId("ubuntu"));
+        assertNull(catalog.imageId("id-1"));
+    }
+
+    @Test
+    public void shouldOrderImagesWithoutCreationTimeByListing() {
+        catalog.replace(Collections.singletonList(image("id-1", "ubuntu", null)), T0);
+        catalog.replace(Collections.singletonList(image("id-2", "ubuntu", null)), T0.plusSeconds(60));
+
+        assertEquals("id-2", catalog.imageId("ubuntu"));
+        assertEquals("id-1", catalog.previousImageId("ubuntu"));
+    }
+
+    @Test
+    public void shouldKeepLimitedLineage() {
+        for (int i = 0; i <= ImageCatalog.LINEAGE_LENGTH; i++) {
+            catalog.replace(Collections.singletonList(image("id-" + i, "ubuntu", T0.plusSeconds(i))), T0.plusSeconds(i));
+        }
+        catalog.replace(Collections.singletonList(image("id-1", "ubuntu", T0.plusSeconds(1))), T0.plusSeconds(100));
+
+        assertEquals("", catalog.previousImageId("ubuntu"));
+    }
+
+    @Test
+    public void shouldForgetLineageOnReset() {
+        catalog.replace(Arrays.asList(image("new", "ubuntu", T0.plusSeconds(60)), image("old", "ubuntu", T0)), T0);
+        catalog.resetLineage();
+
+        assertEquals("", catalog.previousImageId("ubuntu"));
+        assertEquals("new", catalog.imageId("ubuntu"));
+    }
+
+    @Test
+    public void shouldKeepImageAddedByIdUntilNextListing() {
+        catalog.replace(Collections.emptyList(), T0);
+        catalog.add(image("id-1", "private", T0), T0);
+
+        assertEquals("id-1", catalog.imageId("id-1"));
+        assertNull(catalog.imageId("private"));
+
+        catalog.replace(Collections.emptyList(), T0.plusSeconds(60));
+        assertNull(catalog.imageId("id-1"));
+    }
+
+    @Test
+    public void shouldBeOlderThanPeriodUntilListed() {
+        assertTrue(catalog.isOlderThan(Duration.ofMinutes(30), T0));
+
+        catalog.replace(Collections.emptyList(), T0);
+
+        assertFalse(catalog.isOlderThan(Duration.ofMinutes(30), T0.plusSeconds(60)));
+        assertTrue(catalog.isOlderThan(Duration.ofMinutes(30), T0.plus(Duration.ofMinutes(30))));
+    }
+
+    private static Image image(String id, String name, Instant created) {
+        Image image = mock(Image.class);
+        when(image.getId()).thenReturn(id);
+        when(image.getName()).thenReturn(name);
+        when(image.getCreated()).thenReturn(created == null ? null : Date.from(created));
+        return image;
+    }
+}
@@ -0,0 +1,52 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstanceNameAllocatorTest {
+
+    @Test
+    public void shouldAllocateSequentialNamesForRun() {
+        InstanceNameAllocator allocator = new InstanceNameAllocator("abcdef");
+
+        assertEquals("prefix-abcdef000001", allocator.allocate("prefix-", name -> false));
+        assertEquals("prefix-abcdef000002", allocator.allocate("prefix-", name -> false));
+    }
+
+    @Test
+    public void shouldSkipTakenNames() {
+        InstanceNameAllocator allocator = new InstanceNameAllocator("abcdef");
+
+        assertEquals("prefix-abcdef000002", allocator.allocate("prefix-", "prefix-abcdef000001"::equals));
+    }
+
+    @Test
+    public void shouldAllocateLowerCaseNamesOfFixedLength() {
+        final String name = new InstanceNameAllocator().allocate("prefix-", taken -> false);
+
+        assertEquals("prefix-".length() + InstanceNameAllocator.RUN_ID_LENGTH + InstanceNameAllocator.SEQUENCE_LENGTH, name.length());
+        assertEquals(name.toLowerCase(), name);
+    }
+
+    @Test
+    public void shouldNotAllocateNameTwiceFromConcurrentThreads() throws InterruptedException {
+        InstanceNameAllocator allocator = new InstanceNameAllocator();
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8000; i++) {
+            executor.execute(() -> names.add(allocator.allocate("prefix-", name -> false)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8000, names.size());
+    }
+}
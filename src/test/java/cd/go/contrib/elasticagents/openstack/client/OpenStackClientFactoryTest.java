@@ -0,0 +1,28 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class OpenStackClientFactoryTest {
+
+    private static PluginSettings settings(String user, String tenant, String password) {
+        return PluginSettings.fromJSON("{\"openstack_endpoint\":\"http://keystone/v3\",\"openstack_keystone_version\":\"3\","
+                + "\"openstack_domain\":\"default\",\"openstack_user\":\"" + user + "\","
+                + "\"openstack_tenant\":\"" + tenant + "\",\"openstack_password\":\"" + password + "\"}");
+    }
+
+    @Test
+    public void credentialsShouldCoverTheWholeIdentity() {
+        final String credentials = OpenStackClientFactory.credentials(settings("user", "tenant", "secret"));
+
+        assertEquals(credentials, OpenStackClientFactory.credentials(settings("user", "tenant", "secret")));
+        assertNotEquals(credentials, OpenStackClientFactory.credentials(settings("other", "tenant", "secret")));
+        assertNotEquals(credentials, OpenStackClientFactory.credentials(settings("user", "other", "secret")));
+        assertNotEquals(credentials, OpenStackClientFactory.credentials(settings("user", "tenant", "other")));
+        assertFalse(credentials.contains("secret"));
+    }
+}
@@ -3,11 +3,16 @@ package cd.go.contrib.elasticagents.openstack.client;
 import cd.go.contrib.elasticagents.openstack.PluginSettings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.openstack4j.model.compute.Server;
 
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 public class OpenStackInstanceTest {
 
@@ -28,7 +33,33 @@ public class OpenStackInstanceTest {
         instance.setMaxCompletedJobs("2");
         assertFalse(instance.incrementJobsCompleted());
         assertTrue(instance.incrementJobsCompleted());
+        assertFalse(instance.incrementJobsCompleted());
+    }
+
+    @Test
+    public void shouldReportDoneAgainPastMaxAfterTerminationFailed() {
+        instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        instance = new OpenStackInstance(instanceId, new Date(), "testing",
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", settings);
+        instance.setMaxCompletedJobs("1");
+        assertTrue(instance.incrementJobsCompleted());
+
+        instance.terminationFailed();
+
         assertTrue(instance.incrementJobsCompleted());
+        assertFalse(instance.incrementJobsCompleted());
+    }
+
+    @Test
+    public void shouldKeepCreationTimeWhenListedServerHasNone() {
+        final Date createdAt = new Date();
+        instance = new OpenStackInstance("b45b5658-b093-4a58-bf22-17d898171c95", createdAt, "testing",
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", settings);
+
+        instance.serverDetails(mock(Server.class));
+
+        assertEquals(createdAt.toInstant(), instance.createAt());
+        assertFalse(instance.isServerDetailsPending());
     }
 
     @Test
@@ -43,4 +74,58 @@ public class OpenStackInstanceTest {
         assertFalse(instance.incrementJobsCompleted());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldNotLoseConcurrentJobCompletions() throws Exception {
+        instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        instance = new OpenStackInstance(instanceId, new Date(), "testing",
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", settings);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(instance::incrementJobsCompleted);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, instance.getJobsCompleted());
+    }
+
+    @Test
+    public void shouldReportDoneOnceGivenConcurrentJobCompletions() throws Exception {
+        instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        instance = new OpenStackInstance(instanceId, new Date(), "testing",
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", settings);
+        instance.setMaxCompletedJobs("10");
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                if (instance.incrementJobsCompleted()) {
+                    done.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void shouldReportUsage() {
+        instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        instance = new OpenStackInstance(instanceId, new Date(), "testing",
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", settings);
+        instance.setMaxCompletedJobs("3");
+        assertNull(instance.usage().lastJobCompletedAt());
+
+        instance.building();
+        assertTrue(instance.usage().isBusy());
+        instance.incrementJobsCompleted();
+
+        InstanceUsage usage = instance.usage();
+        assertFalse(usage.isBusy());
+        assertEquals(1, usage.jobsCompleted());
+        assertEquals(2, usage.jobsRemaining());
+        assertNotNull(usage.lastJobCompletedAt());
+    }
+}
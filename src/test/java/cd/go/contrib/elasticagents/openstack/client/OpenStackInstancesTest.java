@@ -1,29 +1,35 @@
 package cd.go.contrib.elasticagents.openstack.client;
 
 import cd.go.contrib.elasticagents.openstack.*;
+import cd.go.contrib.elasticagents.openstack.executors.ServerPingRequestExecutor;
+import cd.go.contrib.elasticagents.openstack.model.Agent;
 import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
 import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
 import cd.go.contrib.elasticagents.openstack.requests.CreateAgentRequest;
-import org.cache2k.Cache;
-import org.cache2k.Cache2kBuilder;
+import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openstack4j.api.OSClient;
 import org.openstack4j.api.compute.ComputeImageService;
 import org.openstack4j.api.compute.ComputeService;
 import org.openstack4j.api.compute.FlavorService;
+import org.openstack4j.model.common.ActionResponse;
 import org.openstack4j.model.compute.Flavor;
 import org.openstack4j.model.compute.Image;
 import org.openstack4j.model.compute.Server;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -244,12 +250,7 @@ public class OpenStackInstancesTest {
         instance = new OpenStackInstance(instanceId, new Date(), null,
                 firstImageId, flavorId, pluginSettings);
 
-        Cache<String, String> cache = new Cache2kBuilder<String, String>() {
-        }
-                .expireAfterWrite(1, TimeUnit.SECONDS)
-                .entryCapacity(100)
-                .build();
-        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, cache, null);
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), null);
         instances = new OpenStackInstances(pluginSettings, clientWrapper);
         instances.register(instance);
 
@@ -259,14 +260,14 @@ public class OpenStackInstancesTest {
 
         // Act
         assertThat(instances.matchInstance(instanceId, properties, null, transactionId, true), is(true));
-        cache.clear();
 
         // Assert
         when(imageWithName.getId()).thenReturn(secondImageId);
+        clientWrapper.refreshImages(transactionId);
         assertThat(instances.matchInstance(instanceId, properties, null, transactionId, true), is(true));
-        cache.clear();
 
         when(imageWithName.getId()).thenReturn(thirdImageId);
+        clientWrapper.refreshImages(transactionId);
         assertThat(instances.matchInstance(instanceId, properties, null, transactionId, true), is(false));
 
     }
@@ -320,8 +321,10 @@ public class OpenStackInstancesTest {
         System.out.println(instances.getPendingAgents().length);
         instances.addPending(instance, originalRequest);
         System.out.println(instances.getPendingAgents().length);
-        when(client.getServer(eq(instanceId))).thenReturn(server);
-        when(client.isInstanceInErrorState(eq(instanceId))).thenReturn(false);
+        when(server.getId()).thenReturn(instanceId);
+        when(server.getStatus()).thenReturn(Server.Status.ACTIVE);
+        when(client.listServers(anyString())).thenReturn(Collections.singletonList(server));
+        instances.syncInventory();
         assertEquals(1, instances.getPendingAgents().length);
 
         // Act
@@ -342,8 +345,11 @@ public class OpenStackInstancesTest {
         System.out.println(instances.getPendingAgents().length);
         instances.addPending(instance, originalRequest);
         System.out.println(instances.getPendingAgents().length);
-        when(client.getServer(eq(instanceId))).thenReturn(server);
-        when(client.isInstanceInErrorState(eq(instanceId))).thenReturn(true);
+        when(server.getId()).thenReturn(instanceId);
+        when(server.getStatus()).thenReturn(Server.Status.ERROR);
+        when(client.listServers(anyString())).thenReturn(Collections.singletonList(server));
+        when(client.terminate(eq(instanceId))).thenReturn(ActionResponse.actionSuccess());
+        instances.syncInventory();
 
         // Act
         instances.refreshPending(pluginRequest);
@@ -363,8 +369,13 @@ public class OpenStackInstancesTest {
         System.out.println(instances.getPendingAgents().length);
         instances.addPending(instance, originalRequest);
         System.out.println(instances.getPendingAgents().length);
-        when(client.getServer(eq(instanceId))).thenReturn(server);
-        when(client.isInstanceInErrorState(eq(instanceId))).thenReturn(true);
+        when(server.getId()).thenReturn(instanceId);
+        when(server.getStatus()).thenReturn(Server.Status.ERROR);
+        when(client.listServers(anyString())).thenReturn(Collections.singletonList(server));
+        // registered by the time unregistered instances are swept, which would terminate it otherwise
+        when(pluginRequest.listAgents()).thenReturn(new Agents(), new Agents(Collections.singletonList(
+                new Agent(instanceId, Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled))));
+        instances.syncInventory();
         assertEquals(1, instances.getPendingAgents().length);
 
         // Act
@@ -375,4 +386,315 @@ public class OpenStackInstancesTest {
         assertEquals(0, instances.getPendingAgents().length);
         verify(client, times(0)).terminate(eq(instanceId));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void refreshPendingShouldTerminateUnregisteredInstancesInErrorStateWhenDeleteDisabled() throws Exception {
+        // Arrange
+        Server server = mock(Server.class);
+        pluginSettings.setDeleteErrorInstances(false);
+        when(server.getId()).thenReturn(instanceId);
+        when(server.getStatus()).thenReturn(Server.Status.ERROR);
+        when(client.listServers(anyString())).thenReturn(Collections.singletonList(server));
+        when(client.terminate(eq(instanceId))).thenReturn(ActionResponse.actionSuccess());
+        instances.syncInventory();
+
+        // Act
+        instances.refreshPending(pluginRequest);
+
+        // Assert
+        verify(client, times(1)).terminate(eq(instanceId));
+    }
+
+    @Test
+    public void syncInventoryShouldOnlyListChangedServersAfterFullListing() {
+        when(client.listServers(anyString())).thenReturn(Collections.emptyList());
+        when(client.listServersChangedSince(anyString(), any(Instant.class))).thenReturn(Collections.emptyList());
+
+        instances.syncInventory();
+        instances.syncInventory();
+
+        verify(client, times(1)).listServers(eq(pluginSettings.getOpenstackVmPrefix()));
+        verify(client, times(1)).listServersChangedSince(eq(pluginSettings.getOpenstackVmPrefix()), any(Instant.class));
+    }
+
+    @Test
+    public void createShouldNotReadServerAfterBootAndSyncInventoryShouldFillInDetails() throws Exception {
+        Server booted = mock(Server.class);
+        when(booted.getId()).thenReturn("c8a7e6f3-1d5e-4a0b-9f61-2a3c4d5e6f70");
+        when(client.bootServer(any())).thenReturn(booted);
+        CreateAgentRequest request = new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties());
+
+        OpenStackInstance created = instances.create(request, transactionId);
+
+        verify(client, never()).getServer(anyString());
+        assertEquals(TestHelper.IMAGE_ID1, created.getImageIdOrName());
+        assertEquals(TestHelper.FLAVOR_ID1, created.getFlavorIdOrName());
+        assertThat(created.isServerDetailsPending(), is(true));
+
+        Server listed = mock(Server.class);
+        when(listed.getId()).thenReturn(created.id());
+        when(listed.getCreated()).thenReturn(new Date(0));
+        when(client.listServers(anyString())).thenReturn(Collections.singletonList(listed));
+        instances.syncInventory();
+
+        assertThat(created.isServerDetailsPending(), is(false));
+        assertEquals(Instant.EPOCH, created.createAt());
+    }
+
+    @Test
+    public void createAsyncShouldRecordBootingPendingAgentThatRefreshPendingKeeps() throws Exception {
+        CountDownLatch bootStarted = new CountDownLatch(1);
+        CountDownLatch releaseBoot = new CountDownLatch(1);
+        when(client.instanceNameExists(anyString())).thenAnswer(invocation -> {
+            bootStarted.countDown();
+            releaseBoot.await(10, TimeUnit.SECONDS);
+            return false;
+        });
+        when(client.listServers(anyString())).thenReturn(Collections.emptyList());
+        CreateAgentRequest request = new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties());
+
+        instances.createAsync(request, transactionId, pluginRequest);
+        bootStarted.await(10, TimeUnit.SECONDS);
+        instances.syncInventory();
+        instances.refreshPending(pluginRequest);
+
+        assertEquals(1, instances.getPendingAgents().length);
+        assertThat(instances.getPendingAgents()[0].isBooting(), is(true));
+        releaseBoot.countDown();
+    }
+
+    @Test
+    public void createAsyncShouldBootEachRequestWithoutWaitingForOthers() throws Exception {
+        CountDownLatch firstBootStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBoot = new CountDownLatch(1);
+        CountDownLatch secondBootStarted = new CountDownLatch(1);
+        when(client.listServers(anyString())).thenReturn(Collections.emptyList());
+        when(client.bootServer(any())).thenAnswer(invocation -> {
+            if (firstBootStarted.getCount() > 0) {
+                firstBootStarted.countDown();
+                releaseFirstBoot.await(10, TimeUnit.SECONDS);
+            } else {
+                secondBootStarted.countDown();
+            }
+            return null;
+        });
+        instances.syncInventory();
+
+        try {
+            instances.createAsync(new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties()), transactionId, pluginRequest);
+            assertThat(firstBootStarted.await(10, TimeUnit.SECONDS), is(true));
+            instances.createAsync(new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties()), transactionId, pluginRequest);
+
+            assertThat(secondBootStarted.await(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            releaseFirstBoot.countDown();
+        }
+    }
+
+    @Test
+    public void createAsyncShouldNotCheckInstanceNamesWithOpenStackAfterFirstListing() throws Exception {
+        CountDownLatch bootsStarted = new CountDownLatch(2);
+        when(client.listServers(anyString())).thenReturn(Collections.emptyList());
+        when(client.bootServer(any())).thenAnswer(invocation -> {
+            bootsStarted.countDown();
+            return null;
+        });
+        instances.syncInventory();
+
+        instances.createAsync(new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties()), transactionId, pluginRequest);
+        instances.createAsync(new CreateAgentRequest("123", props, job1, null, new ClusterProfileProperties()), transactionId, pluginRequest);
+
+        assertThat(bootsStarted.await(10, TimeUnit.SECONDS), is(true));
+        verify(client, never()).instanceNameExists(anyString());
+    }
+
+    @Test
+    public void removeOldAndDisabledShouldKeepExpiredIdleAgentToKeep() throws Exception {
+        OpenStackInstance oldInstance = new OpenStackInstance(instanceId, new Date(0), null, TestHelper.IMAGE_ID1, TestHelper.FLAVOR_ID1, pluginSettings);
+        instances.register(oldInstance);
+        Agents agents = new Agents(Collections.singletonList(new Agent(instanceId, Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled)));
+        when(pluginRequest.listAgents()).thenReturn(agents);
+        props.put(Constants.OPENSTACK_IDLE_AGENTS_TO_KEEP, "1");
+
+        instances.recordDemand(props, null, TestHelper.IMAGE_ID1, TestHelper.FLAVOR_ID1);
+        instances.removeOldAndDisabled(pluginRequest);
+
+        verify(pluginRequest).disableAgents(argThat(Collection::isEmpty));
+    }
+
+    @Test
+    public void removeOldAndDisabledShouldExpireIdleAgentWithoutIdleAgentsToKeep() throws Exception {
+        OpenStackInstance oldInstance = new OpenStackInstance(instanceId, new Date(0), null, TestHelper.IMAGE_ID1, TestHelper.FLAVOR_ID1, pluginSettings);
+        instances.register(oldInstance);
+        Agents agents = new Agents(Collections.singletonList(new Agent(instanceId, Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled)));
+        when(pluginRequest.listAgents()).thenReturn(agents);
+
+        instances.recordDemand(props, null, TestHelper.IMAGE_ID1, TestHelper.FLAVOR_ID1);
+        instances.removeOldAndDisabled(pluginRequest);
+
+        verify(pluginRequest).disableAgents(argThat(toDisable -> toDisable.size() == 1));
+    }
+
+    @Test
+    public void removeOldAndDisabledShouldStartBusyTimeOfBuildingAgents() throws Exception {
+        OpenStackInstance building = new OpenStackInstance(instanceId, new Date(), null, TestHelper.IMAGE_ID1, TestHelper.FLAVOR_ID1, pluginSettings);
+        instances.register(building);
+        Agents agents = new Agents(Collections.singletonList(new Agent(instanceId, Agent.AgentState.Building, Agent.BuildState.Building, Agent.ConfigState.Enabled)));
+        when(pluginRequest.listAgents()).thenReturn(agents);
+
+        instances.removeOldAndDisabled(pluginRequest);
+
+        assertThat(building.usage().isBusy(), is(true));
+    }
+
+    @Test
+    public void terminateShouldReturnResultPerInstanceWithoutRetryingInline() throws Exception {
+        String failingId = "a66f6b57-0c34-4a4b-9c9a-1c0e0b6e5d2f";
+        ActionResponse failure = mock(ActionResponse.class);
+        when(failure.isSuccess()).thenReturn(false);
+        when(failure.getCode()).thenReturn(500);
+        when(client.terminate(instanceId)).thenReturn(ActionResponse.actionSuccess());
+        when(client.terminate(failingId)).thenReturn(failure);
+
+        Map<String, Boolean> results = instances.terminate(Arrays.asList(instanceId, failingId));
+
+        assertEquals(Boolean.TRUE, results.get(instanceId));
+        assertEquals(Boolean.FALSE, results.get(failingId));
+        assertNull(instances.find(instanceId));
+        verify(client, times(1)).terminate(failingId);
+    }
+
+    @Test
+    public void terminateShouldTreatAlreadyDeletedInstanceAsTerminated() throws Exception {
+        ActionResponse notFound = mock(ActionResponse.class);
+        when(notFound.isSuccess()).thenReturn(false);
+        when(notFound.getCode()).thenReturn(404);
+        when(client.terminate(instanceId)).thenReturn(notFound);
+
+        assertThat(instances.terminate(instanceId), is(true));
+    }
+
+    @Test
+    public void refreshAllShouldNotBlockReadersNorRunTwice() throws Exception {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(client.listServers(anyString())).thenAnswer(invocation -> {
+            listing.countDown();
+            release.await();
+            return Collections.emptyList();
+        });
+        Thread refresh = new Thread(() -> instances.refreshAll(pluginRequest));
+        refresh.start();
+        try {
+            assertThat(listing.await(5, TimeUnit.SECONDS), is(true));
+
+            assertThat(instances.hasInstance(instanceId), is(true));
+            assertThat(instances.refreshAll(pluginRequest), is(false));
+            verify(client, times(1)).listServers(anyString());
+        } finally {
+            release.countDown();
+            refresh.join();
+        }
+    }
+
+    @Test
+    public void refreshAllShouldFailWhenInstancesCannotBeListed() {
+        when(client.listServers(anyString())).thenThrow(new RuntimeException("nova unreachable"));
+
+        assertThrows(RuntimeException.class, () -> instances.refreshAll(pluginRequest));
+        verify(pluginRequest).addServerHealthMessage(anyString(), eq(ServerHealthMessages.Type.ERROR), eq("nova unreachable"));
+    }
+
+    @Test
+    public void awaitInitialRefreshShouldNotFailWhenRefreshFails() {
+        when(client.listServers(anyString())).thenThrow(new RuntimeException("nova unreachable"));
+
+        instances.awaitInitialRefresh(pluginRequest);
+
+        verify(client, times(1)).listServers(anyString());
+    }
+
+    @Test
+    public void awaitInitialRefreshShouldRetryAfterFailedRefresh() {
+        when(client.listServers(anyString())).thenThrow(new RuntimeException("nova unreachable"))
+                .thenReturn(Collections.emptyList());
+
+        instances.awaitInitialRefresh(pluginRequest);
+        instances.awaitInitialRefresh(pluginRequest);
+        instances.awaitInitialRefresh(pluginRequest);
+
+        verify(client, times(2)).listServers(anyString());
+    }
+
+    @Test
+    public void awaitInitialRefreshShouldRefreshOnlyOnce() throws Exception {
+        when(client.listServers(anyString())).thenReturn(Collections.emptyList());
+
+        instances.awaitInitialRefresh(pluginRequest);
+        instances.awaitInitialRefresh(pluginRequest);
+
+        verify(client, times(1)).listServers(anyString());
+    }
+
+    @Test
+    public void awaitInitialRefreshShouldWaitForRefreshRunningInOtherThread() throws Exception {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(client.listServers(anyString())).thenAnswer(invocation -> {
+            listing.countDown();
+            release.await();
+            return Collections.emptyList();
+        });
+        Thread first = new Thread(() -> instances.awaitInitialRefresh(pluginRequest));
+        first.start();
+        assertThat(listing.await(5, TimeUnit.SECONDS), is(true));
+
+        final CountDownLatch secondDone = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            instances.awaitInitialRefresh(pluginRequest);
+            secondDone.countDown();
+        });
+        second.start();
+        assertThat(secondDone.await(200, TimeUnit.MILLISECONDS), is(false));
+
+        release.countDown();
+        assertThat(secondDone.await(5, TimeUnit.SECONDS), is(true));
+        first.join();
+        verify(client, times(1)).listServers(anyString());
+    }
+
+    @Test
+    public void serverPingDuringInitialRefreshShouldNotDeleteAgents() throws Exception {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(client.listServers(anyString())).thenAnswer(invocation -> {
+            listing.countDown();
+            release.await();
+            return Collections.emptyList();
+        });
+        when(pluginRequest.listAgents()).thenReturn(new Agents(Collections.singletonList(new Agent("agent-without-instance"))));
+        Thread initialRefresh = new Thread(() -> instances.awaitInitialRefresh(pluginRequest));
+        initialRefresh.start();
+        try {
+            assertThat(listing.await(5, TimeUnit.SECONDS), is(true));
+
+            new ServerPingRequestExecutor(Collections.singletonMap("cluster", instances), pluginRequest).execute();
+
+            verify(pluginRequest, never()).disableAgents(any());
+            verify(pluginRequest, never()).deleteAgents(any());
+        } finally {
+            release.countDown();
+            initialRefresh.join();
+        }
+    }
+
+    @Test
+    public void setPluginSettingsShouldApplyChangedBootLimit() {
+        PluginSettings changed = new PluginSettings();
+        changed.setOpenstackMaxConcurrentBoots("2");
+
+        instances.setPluginSettings(changed);
+
+        verify(client).setMaxConcurrentBoots(2);
+    }
+}
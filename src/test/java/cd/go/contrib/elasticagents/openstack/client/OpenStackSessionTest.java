@@ -0,0 +1,84 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstack4j.model.identity.v3.Token;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OpenStackSessionTest {
+
+    private OpenStackSession session;
+    private Token token;
+    private Instant now;
+
+    @BeforeEach
+    public void setUp() {
+        session = new OpenStackSession();
+        token = mock(Token.class);
+        now = Instant.now();
+    }
+
+    @Test
+    public void shouldNotBeUsableBeforeAuthentication() {
+        assertFalse(session.isUsable("3:secret", now));
+    }
+
+    @Test
+    public void shouldBeUsableUntilShortlyBeforeExpiry() {
+        when(token.getExpires()).thenReturn(Date.from(now.plus(60, MINUTES)));
+        session.update(token, "3:secret", now);
+
+        assertTrue(session.isUsable("3:secret", now));
+        assertTrue(session.isUsable("3:secret", now.plus(58, MINUTES)));
+        assertFalse(session.isUsable("3:secret", now.plus(59, MINUTES).plusSeconds(1)));
+    }
+
+    @Test
+    public void shouldNotBeUsableWhenCredentialsChanged() {
+        when(token.getExpires()).thenReturn(Date.from(now.plus(60, MINUTES)));
+        session.update(token, "3:secret", now);
+
+        assertFalse(session.isUsable("3:other", now));
+    }
+
+    @Test
+    public void shouldAskForRefreshAheadOfExpiry() {
+        when(token.getExpires()).thenReturn(Date.from(now.plus(60, MINUTES)));
+        session.update(token, "3:secret", now);
+
+        assertFalse(session.shouldRefresh(now.plus(45, MINUTES)));
+        assertTrue(session.shouldRefresh(now.plus(51, MINUTES)));
+    }
+
+    @Test
+    public void shouldReplaceTokenExpiryAndCredentialsTogether() {
+        when(token.getExpires()).thenReturn(Date.from(now.plus(60, MINUTES)));
+        session.update(token, "3:secret", now);
+        final Token renewed = mock(Token.class);
+        when(renewed.getExpires()).thenReturn(Date.from(now.plus(120, MINUTES)));
+        session.update(renewed, "3:other", now);
+
+        final OpenStackSession.State state = session.state();
+        assertSame(renewed, state.token());
+        assertEquals(Date.from(now.plus(120, MINUTES)).toInstant(), state.expiresAt());
+        assertEquals("3:other", state.credentials());
+    }
+
+    @Test
+    public void shouldAllowOnlyOneRefreshAtATime() {
+        assertTrue(session.startRefresh());
+        assertFalse(session.startRefresh());
+        session.refreshDone();
+        assertTrue(session.startRefresh());
+    }
+}
@@ -2,8 +2,6 @@ package cd.go.contrib.elasticagents.openstack.client;
 
 import cd.go.contrib.elasticagents.openstack.PluginSettings;
 import cd.go.contrib.elasticagents.openstack.TestHelper;
-import org.cache2k.Cache;
-import org.cache2k.Cache2kBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openstack4j.api.OSClient;
@@ -13,12 +11,16 @@ import org.openstack4j.api.compute.FlavorService;
 import org.openstack4j.model.compute.Flavor;
 import org.openstack4j.model.compute.Image;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -29,6 +31,8 @@ public class OpenstackClientWrapperTest {
     private OSClient client;
     private OpenStackClientFactory clientFactory;
     private ComputeService compute;
+    private Clock clock;
+    private volatile Instant now;
 
     @BeforeEach
     public void setUp() throws Exception {
@@ -38,6 +42,13 @@ public class OpenstackClientWrapperTest {
         when(clientFactory.createClient(any())).thenReturn(client);
         compute = mock(ComputeService.class);
         when(client.compute()).thenReturn(compute);
+        clock = mock(Clock.class);
+        now = Instant.parse("2022-01-01T00:00:00Z");
+        when(clock.instant()).thenAnswer(invocation -> now);
+    }
+
+    private void advanceClock(Duration duration) {
+        now = now.plus(duration);
     }
 
     @Test
@@ -64,10 +75,7 @@ public class OpenstackClientWrapperTest {
 
         doReturn(images).when(imageService).list();
 
-        Cache<String, String> imageCache = new Cache2kBuilder<String, String>() {
-        }.entryCapacity(100).build();
-
-        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, imageCache, null);
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
 
         // Act
         final String imageId = clientWrapper.getImageId(imageName, transactionId);
@@ -101,13 +109,9 @@ public class OpenstackClientWrapperTest {
         images.add(imageWithName);
 
         doReturn(images).when(imageService).list();
-        Cache<String, String> cache = new Cache2kBuilder<String, String>() {
-        }
-                .entryCapacity(100)
-                .build();
 
         // Act
-        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, cache, null);
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
         clientWrapper.resetPreviousImages();
 
         // Assert
@@ -115,12 +119,12 @@ public class OpenstackClientWrapperTest {
         assertEquals("", clientWrapper.getPreviousImageId(imageName, transactionId));
 
         when(imageWithName.getId()).thenReturn(secondImageId);
-        cache.clear();
+        clientWrapper.refreshImages(transactionId);
         assertEquals(secondImageId, clientWrapper.getImageId(imageName, transactionId));
         assertEquals(firstImageId, clientWrapper.getPreviousImageId(imageName, transactionId));
 
         when(imageWithName.getId()).thenReturn(thirdImageId);
-        cache.clear();
+        clientWrapper.refreshImages(transactionId);
         assertEquals(thirdImageId, clientWrapper.getImageId(imageName, transactionId));
         assertEquals(secondImageId, clientWrapper.getPreviousImageId(imageName, transactionId));
     }
@@ -148,14 +152,8 @@ public class OpenstackClientWrapperTest {
 
         doReturn(images).when(imageService).list();
 
-        Cache<String, String> cache = new Cache2kBuilder<String, String>() {
-        }
-                .expireAfterWrite(1, TimeUnit.SECONDS)
-                .entryCapacity(100)
-                .build();
-
         // Act
-        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, cache, null);
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofSeconds(1), Duration.ofHours(1), clock);
 
         // Assert
         verify(imageService, times(0)).list();
@@ -164,8 +162,7 @@ public class OpenstackClientWrapperTest {
         verify(imageService, times(1)).list();
         assertEquals(expectedImageId, clientWrapper.getImageId(imageName, transactionId));
         verify(imageService, times(1)).list();
-        System.out.println("sleep 1100");
-        Thread.sleep(1100);
+        advanceClock(Duration.ofMillis(1100));
         assertEquals(expectedImageId, clientWrapper.getImageId(imageName, transactionId));
         verify(imageService, times(2)).list();
         assertEquals(expectedImageId, clientWrapper.getImageId(imageName, transactionId));
@@ -174,15 +171,95 @@ public class OpenstackClientWrapperTest {
     }
 
     @Test
-    public void testFlavorIdCache() throws Exception {
+    public void shouldGetImageIdMissingFromListingById() throws ImageNotFoundException {
+        // Arrange
+        final ComputeImageService imageService = mock(ComputeImageService.class);
+        when(compute.images()).thenReturn(imageService);
+        doReturn(new ArrayList<Image>()).when(imageService).list();
+        Image image = mock(Image.class);
+        when(image.getId()).thenReturn("ImageId");
+        when(imageService.get("ImageId")).thenReturn(image);
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
+
+        // Assert
+        assertEquals("ImageId", clientWrapper.getImageId("ImageId", transactionId));
+        assertEquals("ImageId", clientWrapper.getImageId("ImageId", transactionId));
+        verify(imageService, times(1)).list();
+        verify(imageService, times(1)).get("ImageId");
+    }
+
+    @Test
+    public void shouldListImagesAgainBeforeFailingOnUnknownImage() {
+        // Arrange
+        final ComputeImageService imageService = mock(ComputeImageService.class);
+        when(compute.images()).thenReturn(imageService);
+        doReturn(new ArrayList<Image>()).when(imageService).list();
+        when(imageService.get(anyString())).thenReturn(null);
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
+        clientWrapper.refreshImages(transactionId);
+
+        // Act
+        assertThrows(ImageNotFoundException.class, () -> clientWrapper.getImageId("unknown", transactionId));
+
+        // Assert
+        verify(imageService, times(2)).list();
+    }
+
+    @Test
+    public void shouldListImagesAheadInBackgroundBeforeRefreshPeriod() throws Exception {
+        // Arrange
+        final ComputeImageService imageService = mock(ComputeImageService.class);
+        when(compute.images()).thenReturn(imageService);
+        Image image = mock(Image.class);
+        when(image.getName()).thenReturn("ImageName");
+        when(image.getId()).thenReturn("ImageId");
+        doReturn(Collections.singletonList(image)).when(imageService).list();
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofSeconds(1), Duration.ofHours(1), clock);
+        assertEquals("ImageId", clientWrapper.getImageId("ImageName", transactionId));
+        verify(imageService, times(1)).list();
+
+        // Act
+        advanceClock(Duration.ofMillis(900));
+        assertEquals("ImageId", clientWrapper.getImageId("ImageName", transactionId));
+
+        // Assert
+        verify(imageService, timeout(1000).times(2)).list();
+        assertEquals(2, clientWrapper.imageStats().hits());
+    }
+
+    @Test
+    public void shouldNotLookUpRecentlyUnknownImageAgain() {
+        // Arrange
+        final ComputeImageService imageService = mock(ComputeImageService.class);
+        when(compute.images()).thenReturn(imageService);
+        doReturn(new ArrayList<Image>()).when(imageService).list();
+        when(imageService.get(anyString())).thenReturn(null);
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
+
+        // Act
+        assertThrows(ImageNotFoundException.class, () -> clientWrapper.getImageId("unknown", transactionId));
+        assertThrows(ImageNotFoundException.class, () -> clientWrapper.getImageId("unknown", transactionId));
+
+        // Assert
+        verify(imageService, times(1)).list();
+        verify(imageService, times(1)).get("unknown");
+        assertEquals(1, clientWrapper.imageStats().misses());
+        assertEquals(1, clientWrapper.imageStats().unknownHits());
+        assertEquals(1, clientWrapper.imageStats().loads());
+    }
+
+    @Test
+    public void shouldResolveFlavorsByNameAndIdFromOneListing() {
         // Arrange
         String flavorName = "m1.medium";
         String expectedFlavorId = "289349234";
         final FlavorService flavorService = mock(FlavorService.class);
         when(compute.flavors()).thenReturn(flavorService);
 
-        when(flavorService.get(anyString())).thenReturn(null);
-
         List<Flavor> flavors = new ArrayList<>();
         Flavor flavorWithNullName = mock(Flavor.class);
         when(flavorWithNullName.getName()).thenReturn(null);
@@ -192,31 +269,82 @@ public class OpenstackClientWrapperTest {
         Flavor flavorWithName = mock(Flavor.class);
         when(flavorWithName.getName()).thenReturn(flavorName);
         when(flavorWithName.getId()).thenReturn(expectedFlavorId);
+        when(flavorWithName.getVcpus()).thenReturn(2);
         flavors.add(flavorWithName);
 
         doReturn(flavors).when(flavorService).list();
 
-        Cache<String, String> cache = new Cache2kBuilder<String, String>() {
-        }
-                .expireAfterWrite(1, TimeUnit.SECONDS)
-                .entryCapacity(100)
-                .build();
-
-        // Act
-        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, null, cache);
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
 
         // Assert
         verify(flavorService, times(0)).list();
-        //final String flavorId = clientWrapper.getFlavorId(flavorName, transactionId);
         assertEquals(expectedFlavorId, clientWrapper.getFlavorId(flavorName, transactionId));
+        assertEquals(expectedFlavorId, clientWrapper.getFlavorId(expectedFlavorId, transactionId));
+        assertEquals("flavorWithNullNameId", clientWrapper.getFlavorId("flavorWithNullNameId", transactionId));
+        assertEquals(2, clientWrapper.getFlavor(flavorName, transactionId).getVcpus());
         verify(flavorService, times(1)).list();
-        assertEquals(expectedFlavorId, clientWrapper.getFlavorId(flavorName, transactionId));
+        verify(flavorService, never()).get(anyString());
+    }
+
+    @Test
+    public void shouldNotListFlavorsOnRequestPathAfterUnknownFlavor() {
+        // Arrange
+        final FlavorService flavorService = mock(FlavorService.class);
+        when(compute.flavors()).thenReturn(flavorService);
+        doReturn(new ArrayList<Flavor>()).when(flavorService).list();
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofHours(1));
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+
+        // Act
+        assertThrows(RuntimeException.class, () -> clientWrapper.getFlavorId("m1.unknown", transactionId));
+        assertThrows(RuntimeException.class, () -> clientWrapper.getFlavorId("m1.unknown", transactionId));
+
+        // Assert
         verify(flavorService, times(1)).list();
-        System.out.println("sleep 1100");
-        Thread.sleep(1100);
-        assertEquals(expectedFlavorId, clientWrapper.getFlavorId(flavorName, transactionId));
+        clientWrapper.refreshFlavorsIfDue(transactionId);
         verify(flavorService, times(2)).list();
-        assertEquals(expectedFlavorId, clientWrapper.getFlavorId(flavorName, transactionId));
+        clientWrapper.refreshFlavorsIfDue(transactionId);
         verify(flavorService, times(2)).list();
+        assertEquals(1, clientWrapper.flavorStats().misses());
+        assertEquals(1, clientWrapper.flavorStats().unknownHits());
+    }
+
+    @Test
+    public void shouldRefreshFlavorsAfterRefreshPeriod() throws Exception {
+        // Arrange
+        final FlavorService flavorService = mock(FlavorService.class);
+        when(compute.flavors()).thenReturn(flavorService);
+        doReturn(new ArrayList<Flavor>()).when(flavorService).list();
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ofSeconds(1), clock);
+
+        // Assert
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+        verify(flavorService, times(1)).list();
+        advanceClock(Duration.ofMillis(1100));
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+        verify(flavorService, times(2)).list();
+    }
+
+    @Test
+    public void shouldKeepFlavorsWhenRefreshFails() {
+        // Arrange
+        final FlavorService flavorService = mock(FlavorService.class);
+        when(compute.flavors()).thenReturn(flavorService);
+        Flavor flavor = mock(Flavor.class);
+        when(flavor.getId()).thenReturn("flavorId");
+        doReturn(Collections.singletonList(flavor)).when(flavorService).list();
+
+        final OpenstackClientWrapper clientWrapper = new OpenstackClientWrapper(pluginSettings, clientFactory, Duration.ofMinutes(30), Duration.ZERO);
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+        when(flavorService.list()).thenThrow(new RuntimeException("Nova is down"));
+
+        // Act
+        clientWrapper.refreshFlavorsIfDue(transactionId);
+
+        // Assert
+        assertEquals("flavorId", clientWrapper.getFlavorId("flavorId", transactionId));
     }
-}
\ No newline at end of file
+}
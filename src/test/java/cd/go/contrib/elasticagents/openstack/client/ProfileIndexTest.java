@@ -0,0 +1,59 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import cd.go.contrib.elasticagents.openstack.PluginSettings;
+import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
+import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
+import cd.go.contrib.elasticagents.openstack.requests.CreateAgentRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.mock;
+
+public class ProfileIndexTest {
+
+    private ProfileIndex index;
+    private PluginSettings pluginSettings;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ProfileIndex();
+        pluginSettings = new PluginSettings();
+    }
+
+    @Test
+    public void shouldFindInstanceByEnvironmentImageAndFlavor() {
+        index.addInstance(new OpenStackInstance("id1", new Date(), " Testing ", "image", "flavor", pluginSettings));
+
+        assertThat(index.instanceIds(ProfileIndex.key("testing", "image", "flavor")), contains("id1"));
+        assertThat(index.instanceIds(ProfileIndex.key("testing", "image", "other-flavor")), empty());
+        assertThat(index.instanceIds(ProfileIndex.key(null, "image", "flavor")), empty());
+    }
+
+    @Test
+    public void shouldForgetRemovedInstance() {
+        final OpenStackInstance instance = new OpenStackInstance("id1", new Date(), null, "image", "flavor", pluginSettings);
+        index.addInstance(instance);
+
+        index.removeInstance(instance);
+
+        assertThat(index.instanceIds(ProfileIndex.key(null, "image", "flavor")), empty());
+    }
+
+    @Test
+    public void shouldTrackPendingAgents() {
+        CreateAgentRequest request = new CreateAgentRequest("key", new HashMap<>(), mock(JobIdentifier.class), null, new ClusterProfileProperties());
+        PendingAgent pending = new PendingAgent("prefix-abc", "image", "flavor", request);
+
+        index.addPending(pending);
+        assertThat(index.pendingAgents(ProfileIndex.key("", "image", "flavor")), contains(pending));
+
+        index.removePending(pending);
+        assertThat(index.pendingAgents(ProfileIndex.key("", "image", "flavor")), empty());
+    }
+}
@@ -0,0 +1,133 @@
+package cd.go.contrib.elasticagents.openstack.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstack4j.model.compute.Server;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServerInventoryTest {
+
+    private ServerInventory inventory;
+    private Instant now;
+
+    @BeforeEach
+    public void setUp() {
+        Clock clock = mock(Clock.class);
+        now = Instant.parse("2022-01-01T00:00:00Z");
+        when(clock.instant()).thenAnswer(invocation -> now);
+        inventory = new ServerInventory(clock);
+    }
+
+    @Test
+    public void shouldAnswerFromLastListing() {
+        inventory.replace(Arrays.asList(server("1", Server.Status.ACTIVE), server("2", Server.Status.ERROR)), now);
+
+        assertTrue(inventory.contains("1"));
+        assertFalse(inventory.isInErrorState("1"));
+        assertTrue(inventory.isInErrorState("2"));
+        assertFalse(inventory.contains("3"));
+        assertEquals(2, inventory.servers().size());
+    }
+
+    @Test
+    public void shouldFindServerByName() {
+        Server server = server("1", Server.Status.ACTIVE);
+        when(server.getName()).thenReturn("prefix-1");
+        inventory.replace(Collections.singletonList(server), now);
+
+        assertTrue(inventory.containsName("prefix-1"));
+        assertFalse(inventory.containsName("prefix-2"));
+    }
+
+    @Test
+    public void shouldKeepServerBootedWhileListingWasInFlight() {
+        final Instant listingStarted = now.minusSeconds(1);
+        inventory.booted("1");
+
+        inventory.replace(Collections.emptyList(), listingStarted);
+
+        assertTrue(inventory.contains("1"));
+    }
+
+    @Test
+    public void shouldForgetBootedServerOnceListingStartedAfterBoot() {
+        inventory.booted("1");
+        now = now.plusMillis(1);
+
+        inventory.replace(Collections.emptyList(), now);
+
+        assertFalse(inventory.contains("1"));
+    }
+
+    @Test
+    public void shouldRemoveTerminatedServer() {
+        inventory.replace(Collections.singletonList(server("1", Server.Status.ACTIVE)), now);
+
+        inventory.remove("1");
+
+        assertFalse(inventory.contains("1"));
+    }
+
+    @Test
+    public void shouldNotRestoreServerRemovedWhileListingWasInFlight() {
+        final Instant listingStarted = now.minusSeconds(1);
+        inventory.replace(Collections.singletonList(server("1", Server.Status.ACTIVE)), listingStarted.minusSeconds(60));
+
+        inventory.remove("1");
+        inventory.replace(Collections.singletonList(server("1", Server.Status.ACTIVE)), listingStarted);
+        assertFalse(inventory.contains("1"));
+
+        inventory.merge(Collections.singletonList(server("1", Server.Status.ACTIVE)), listingStarted);
+        assertFalse(inventory.contains("1"));
+    }
+
+    @Test
+    public void shouldForgetRemovedServerOnceListingStartedAfterRemove() {
+        inventory.remove("1");
+        now = now.plusMillis(1);
+
+        inventory.replace(Collections.singletonList(server("1", Server.Status.ACTIVE)), now);
+
+        assertTrue(inventory.contains("1"));
+    }
+
+    @Test
+    public void shouldMergeChangedAndDropDeletedServers() {
+        inventory.replace(Arrays.asList(server("1", Server.Status.BUILD), server("2", Server.Status.ACTIVE)), now);
+
+        inventory.merge(Arrays.asList(server("1", Server.Status.ERROR), server("2", Server.Status.DELETED),
+                server("3", Server.Status.BUILD)), now);
+
+        assertTrue(inventory.isInErrorState("1"));
+        assertFalse(inventory.contains("2"));
+        assertTrue(inventory.contains("3"));
+        assertEquals(2, inventory.servers().size());
+    }
+
+    @Test
+    public void shouldOnlyMoveFullSyncTimeOnReplace() {
+        final Instant fullSync = now;
+        inventory.replace(Collections.emptyList(), fullSync);
+        final Instant incrementalSync = fullSync.plusSeconds(60);
+
+        inventory.merge(Collections.emptyList(), incrementalSync);
+
+        assertEquals(fullSync, inventory.lastFullSync());
+        assertEquals(incrementalSync, inventory.lastSync());
+    }
+
+    private Server server(String id, Server.Status status) {
+        Server server = mock(Server.class);
+        when(server.getId()).thenReturn(id);
+        when(server.getStatus()).thenReturn(status);
+        return server;
+    }
+}
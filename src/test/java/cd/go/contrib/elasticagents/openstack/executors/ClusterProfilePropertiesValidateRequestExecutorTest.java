@@ -23,6 +23,9 @@ import org.skyscreamer.jsonassert.JSONCompareMode;
 
 import java.util.Collections;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
 public class ClusterProfilePropertiesValidateRequestExecutorTest {
 
     @Test
@@ -64,4 +67,12 @@ public class ClusterProfilePropertiesValidateRequestExecutorTest {
 
         JSONAssert.assertEquals(expectedStr, json, JSONCompareMode.NON_EXTENSIBLE);
     }
+
+    @Test
+    public void shouldRejectNonPositiveMaxConcurrentBoots() throws Exception {
+        ClusterProfilePropertiesValidateRequestExecutor executor = new ClusterProfilePropertiesValidateRequestExecutor(new ClusterProfileValidateRequest(Collections.singletonMap("openstack_max_concurrent_boots", "0")));
+        String json = executor.execute().responseBody();
+
+        assertThat(json, containsString("Maximum concurrent instance boots must be a positive integer."));
+    }
 }
@@ -14,9 +14,9 @@ import cd.go.contrib.elasticagents.openstack.model.JobIdentifier;
 import cd.go.contrib.elasticagents.openstack.requests.CreateAgentRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentMatchers;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -41,7 +41,6 @@ public class CreateAgentRequestExecutorTest {
         createAgentRequest = mock(CreateAgentRequest.class);
         agentInstances = mock(OpenStackInstances.class);
         pluginRequest = mock(PluginRequest.class);
-        when(agentInstances.getPendingAgents()).thenReturn(new PendingAgent[0]);
         agents = new Agents();
         clusterProfileProperties = (ClusterProfileProperties) TestHelper.generateClusterProfileProperties(TestHelper.PROFILE_TYPE.ID1);
         osInstance = mock(OpenStackInstance.class);
@@ -69,11 +68,9 @@ public class CreateAgentRequestExecutorTest {
     @Test
     public void executeShouldCreateAgentWhenNoAgentsExist() throws Exception {
         // Arrange
-        when(agentInstances.getPendingAgents()).thenReturn(new PendingAgent[0]);
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -83,6 +80,22 @@ public class CreateAgentRequestExecutorTest {
         verify(agentInstances, times(1)).create(any(CreateAgentRequest.class), anyString());
     }
 
+    @Test
+    public void executeShouldCreateAgentInBackgroundWhenAsyncCreationEnabled() throws Exception {
+        // Arrange
+        clusterProfileProperties.setAsyncAgentCreation(true);
+        when(pluginRequest.listAgents()).thenReturn(agents);
+        when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
+        CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
+
+        // Act
+        executor.execute();
+
+        // Assert
+        verify(agentInstances, times(1)).createAsync(any(CreateAgentRequest.class), anyString(), eq(pluginRequest));
+        verify(agentInstances, never()).create(any(CreateAgentRequest.class), anyString());
+    }
+
     @Test
     public void executeShouldNotCreateAgentWhenPendingAgentsExistsForSameJob() throws Exception {
         // Arrange
@@ -90,11 +103,9 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> props = new HashMap<>();
         CreateAgentRequest originalRequest = new CreateAgentRequest("123", props, job1, null, clusterProfileProperties);
         pending[0] = new PendingAgent(osInstance, originalRequest);
-        when(agentInstances.getPendingAgents()).thenReturn(pending);
+        when(agentInstances.pendingAgentsMatching(any(), any(), any())).thenReturn(Arrays.asList(pending));
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(false);
         when(createAgentRequest.job()).thenReturn(job1);
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
@@ -112,11 +123,9 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> props = new HashMap<>();
         CreateAgentRequest originalRequest = new CreateAgentRequest("123", props, job1, null, clusterProfileProperties);
         pending[0] = new PendingAgent(osInstance, originalRequest);
-        when(agentInstances.getPendingAgents()).thenReturn(pending);
+        when(agentInstances.pendingAgentsMatching(any(), any(), any())).thenReturn(Arrays.asList(pending));
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(false);
         when(createAgentRequest.job()).thenReturn(job2);
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
@@ -136,8 +145,7 @@ public class CreateAgentRequestExecutorTest {
         when(job.represent()).thenReturn("mock/job");
         when(createAgentRequest.job()).thenReturn(job);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -153,8 +161,7 @@ public class CreateAgentRequestExecutorTest {
         agents.add(new Agent("id1", Agent.AgentState.Building, Agent.BuildState.Building, Agent.ConfigState.Enabled));
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "3");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "testing", clusterProfileProperties);
@@ -174,8 +181,7 @@ public class CreateAgentRequestExecutorTest {
         agents.add(new Agent("id2", Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled));
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MIN_INSTANCE_LIMIT, "3");
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "");
@@ -197,8 +203,7 @@ public class CreateAgentRequestExecutorTest {
         agents.add(new Agent("id3", Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled));
         when(pluginRequest.listAgents()).thenReturn(agents);
         when(createAgentRequest.clusterProfileProperties()).thenReturn(clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "", clusterProfileProperties);
@@ -223,8 +228,7 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MIN_INSTANCE_LIMIT, "3");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "", clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -244,8 +248,7 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "3");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "", clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -262,8 +265,7 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "testing", clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -286,8 +288,7 @@ public class CreateAgentRequestExecutorTest {
         Map<String, String> properties = new HashMap<>();
         properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, "3");
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "testing", clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
@@ -314,8 +315,7 @@ public class CreateAgentRequestExecutorTest {
         when(pluginRequest.listAgents()).thenReturn(agents);
         Map<String, String> properties = new HashMap<>();
         createAgentRequest = new CreateAgentRequest("abc-key", properties, job1, "testing", clusterProfileProperties);
-        when(agentInstances.matchInstance(anyString(), ArgumentMatchers.anyMap(), anyString(),
-                anyString(), anyBoolean())).thenReturn(true);
+        when(agentInstances.instanceIdsMatching(any(), any(), any())).thenReturn(agents.agentIds());
         CreateAgentRequestExecutor executor = new CreateAgentRequestExecutor(createAgentRequest, agentInstances, pluginRequest);
 
         // Act
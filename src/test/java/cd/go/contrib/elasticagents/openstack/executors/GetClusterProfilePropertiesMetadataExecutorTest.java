@@ -243,6 +243,26 @@ public class GetClusterProfilePropertiesMetadataExecutorTest {
                 "      \"required\": true,\n" +
                 "      \"secure\": false\n" +
                 "    }\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"display-name\": \"Create agents asynchronously\",\n" +
+                "    \"default-value\": \"false\",\n" +
+                "    \"display-order\": \"20\",\n" +
+                "    \"key\": \"async_agent_creation\",\n" +
+                "    \"metadata\": {\n" +
+                "      \"required\": false,\n" +
+                "      \"secure\": false\n" +
+                "    }\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"display-name\": \"Maximum concurrent instance boots\",\n" +
+                "    \"default-value\": \"5\",\n" +
+                "    \"display-order\": \"21\",\n" +
+                "    \"key\": \"openstack_max_concurrent_boots\",\n" +
+                "    \"metadata\": {\n" +
+                "      \"required\": false,\n" +
+                "      \"secure\": false\n" +
+                "    }\n" +
                 "  }\n" +
                 "]";
         System.out.println(response.responseBody());
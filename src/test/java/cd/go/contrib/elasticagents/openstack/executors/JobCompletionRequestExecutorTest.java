@@ -26,6 +26,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Date;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class JobCompletionRequestExecutorTest {
@@ -62,4 +63,41 @@ public class JobCompletionRequestExecutorTest {
 
         verify(agentInstances).terminate(elasticAgentId);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotTerminateAgentAgainAfterItWasTerminated() throws Exception {
+        String elasticAgentId = "agent-id";
+        JobCompletionRequest request = new JobCompletionRequest(elasticAgentId, new JobIdentifier(), clusterProfileProperties);
+        OpenStackInstances agentInstances = mock(OpenStackInstances.class);
+        PluginRequest pluginRequest = mock(PluginRequest.class);
+        String instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        OpenStackInstance opInstance = new OpenStackInstance(instanceId, new Date(), null,
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", clusterProfileProperties);
+        opInstance.setMaxCompletedJobs("1");
+        when(agentInstances.find(anyString())).thenReturn(opInstance);
+        when(agentInstances.terminate(elasticAgentId)).thenReturn(true);
+        new JobCompletionRequestExecutor(request, agentInstances, pluginRequest).execute();
+        new JobCompletionRequestExecutor(request, agentInstances, pluginRequest).execute();
+
+        verify(agentInstances, times(1)).terminate(elasticAgentId);
+    }
+
+    @Test
+    public void shouldTerminateAgentAgainOnNextCompletionAfterTerminateFailed() throws Exception {
+        String elasticAgentId = "agent-id";
+        JobCompletionRequest request = new JobCompletionRequest(elasticAgentId, new JobIdentifier(), clusterProfileProperties);
+        OpenStackInstances agentInstances = mock(OpenStackInstances.class);
+        PluginRequest pluginRequest = mock(PluginRequest.class);
+        String instanceId = "b45b5658-b093-4a58-bf22-17d898171c95";
+        OpenStackInstance opInstance = new OpenStackInstance(instanceId, new Date(), null,
+                "7637f039-027d-471f-8d6c-4177635f84f8", "c1980bb5-ed59-4573-83c9-8391b53b3a55", clusterProfileProperties);
+        opInstance.setMaxCompletedJobs("1");
+        when(agentInstances.find(anyString())).thenReturn(opInstance);
+        doThrow(new RuntimeException("GoCD is down")).doNothing().when(pluginRequest).disableAgents(any());
+        assertThrows(RuntimeException.class, () -> new JobCompletionRequestExecutor(request, agentInstances, pluginRequest).execute());
+        new JobCompletionRequestExecutor(request, agentInstances, pluginRequest).execute();
+
+        verify(pluginRequest, times(2)).disableAgents(any());
+        verify(agentInstances, times(1)).terminate(elasticAgentId);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cd.go.contrib.elasticagents.openstack.executors;
+
+import cd.go.contrib.elasticagents.openstack.Agents;
+import cd.go.contrib.elasticagents.openstack.PluginRequest;
+import cd.go.contrib.elasticagents.openstack.client.OpenStackInstances;
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.utils.ServerHealthMessages;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ServerPingRequestExecutorTest {
+
+    private PluginRequest pluginRequest;
+    private OpenStackInstances healthyCluster;
+    private OpenStackInstances brokenCluster;
+    private Map<String, OpenStackInstances> clusters;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        pluginRequest = mock(PluginRequest.class);
+        when(pluginRequest.listAgents()).thenReturn(new Agents(Collections.singletonList(new Agent("missing-agent"))));
+        healthyCluster = mock(OpenStackInstances.class);
+        brokenCluster = mock(OpenStackInstances.class);
+        when(healthyCluster.refreshAll(any())).thenReturn(true);
+        when(brokenCluster.refreshAll(any())).thenReturn(true);
+        clusters = new LinkedHashMap<>();
+        clusters.put("broken", brokenCluster);
+        clusters.put("healthy", healthyCluster);
+    }
+
+    @Test
+    public void shouldRemoveAgentsWithoutInstanceWhenAllClustersWereProcessed() throws Exception {
+        new ServerPingRequestExecutor(clusters, pluginRequest).execute();
+
+        verify(brokenCluster).removeOldAndDisabled(any());
+        verify(healthyCluster).removeOldAndDisabled(any());
+        verify(pluginRequest).deleteAgents(argThat(agents -> agents.size() == 1));
+        verify(pluginRequest).removeServerHealthMessage("ServerPingFailed-healthy");
+        verify(pluginRequest).sendServerHealthMessage();
+    }
+
+    @Test
+    public void shouldProcessOtherClustersWhenOneFails() throws Exception {
+        doThrow(new RuntimeException("keystone unreachable")).when(brokenCluster).refreshAll(any());
+
+        new ServerPingRequestExecutor(clusters, pluginRequest).execute();
+
+        verify(healthyCluster).removeOldAndDisabled(any());
+        verify(pluginRequest).addServerHealthMessage(eq("ServerPingFailed-broken"), eq(ServerHealthMessages.Type.ERROR),
+                contains("keystone unreachable"));
+        verify(pluginRequest, never()).deleteAgents(any());
+        verify(pluginRequest).sendServerHealthMessage();
+    }
+
+    @Test
+    public void shouldAbortClusterThatTakesTooLong() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return true;
+        }).when(brokenCluster).refreshAll(any());
+
+        try {
+            new ServerPingRequestExecutor(clusters, pluginRequest, Duration.ofMillis(200)).execute();
+        } finally {
+            release.countDown();
+        }
+
+        verify(healthyCluster).removeOldAndDisabled(any());
+        verify(pluginRequest).addServerHealthMessage(eq("ServerPingFailed-broken"), eq(ServerHealthMessages.Type.WARNING),
+                anyString());
+        verify(pluginRequest, never()).deleteAgents(any());
+    }
+
+    @Test
+    public void shouldSkipClusterWhoseEarlierPingIsStillRunning() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return true;
+        }).when(brokenCluster).refreshAll(any());
+
+        try {
+            new ServerPingRequestExecutor(clusters, pluginRequest, Duration.ofMillis(200)).execute();
+            new ServerPingRequestExecutor(clusters, pluginRequest, Duration.ofMillis(200)).execute();
+        } finally {
+            release.countDown();
+        }
+
+        verify(brokenCluster, times(1)).refreshAll(any());
+        verify(healthyCluster, times(2)).removeOldAndDisabled(any());
+        verify(pluginRequest).addServerHealthMessage(eq("ServerPingFailed-broken"), eq(ServerHealthMessages.Type.WARNING),
+                contains("still running"));
+        verify(pluginRequest, never()).deleteAgents(any());
+    }
+
+    @Test
+    public void shouldNotRemoveAgentsWhenClusterRefreshWasSkipped() throws Exception {
+        when(brokenCluster.refreshAll(any())).thenReturn(false);
+
+        new ServerPingRequestExecutor(clusters, pluginRequest).execute();
+
+        verify(brokenCluster, never()).removeOldAndDisabled(any());
+        verify(healthyCluster).removeOldAndDisabled(any());
+        verify(pluginRequest, never()).disableAgents(any());
+        verify(pluginRequest, never()).deleteAgents(any());
+    }
+}
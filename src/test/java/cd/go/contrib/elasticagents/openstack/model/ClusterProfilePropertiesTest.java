@@ -21,6 +21,7 @@ import cd.go.contrib.elasticagents.openstack.requests.JobCompletionRequest;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -207,4 +208,29 @@ public class ClusterProfilePropertiesTest {
             System.out.println(ex.getMessage());
         }
     }
+
+    @Test
+    public void shouldKeepRejectingInvalidPropertiesOnceValidationIsCached() {
+        final ClusterProfileProperties properties = ClusterProfileProperties.fromConfiguration(
+                Collections.singletonMap("go_server_url", "http://go-server-url/go"));
+
+        assertThrows(IllegalArgumentException.class, () -> properties.validate("first"));
+        IllegalArgumentException cached = assertThrows(IllegalArgumentException.class, () -> properties.validate("second"));
+        assertThat(cached.getMessage().startsWith("second: "), is(true));
+    }
+
+    @Test
+    public void shouldKeyValidationByContentWithoutThePassword() {
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put("go_server_url", "http://go-server-url/go");
+        configuration.put("openstack_password", "s3cr3t-password");
+        final ClusterProfileProperties properties = ClusterProfileProperties.fromConfiguration(configuration);
+        final ClusterProfileProperties same = ClusterProfileProperties.fromConfiguration(configuration);
+        configuration.put("openstack_password", "other-password");
+        final ClusterProfileProperties otherPassword = ClusterProfileProperties.fromConfiguration(configuration);
+
+        assertThat(properties.validationKey(), is(same.validationKey()));
+        assertThat(properties.validationKey().equals(otherPassword.validationKey()), is(false));
+        assertThat(properties.validationKey().contains("s3cr3t-password"), is(false));
+    }
 }
@@ -0,0 +1,46 @@
+package cd.go.contrib.elasticagents.openstack.simulator;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies recorded from many threads, with percentiles over all of them.
+ */
+class LatencyStats {
+    private long[] nanos = new long[1024];
+    private int count;
+    private final LongAdder errors = new LongAdder();
+
+    synchronized void record(long elapsedNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = elapsedNanos;
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    synchronized Duration percentile(double percentile) {
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        final long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(count - 1, index))]);
+    }
+}
@@ -0,0 +1,30 @@
+package cd.go.contrib.elasticagents.openstack.simulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LatencyStatsTest {
+
+    @Test
+    public void shouldComputePercentilesOverAllRecordings() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 2000; i > 0; i--) {
+            stats.record(Duration.ofMillis(i).toNanos());
+        }
+        stats.error();
+
+        assertEquals(2000, stats.count());
+        assertEquals(1, stats.errors());
+        assertEquals(Duration.ofMillis(1000), stats.percentile(50));
+        assertEquals(Duration.ofMillis(1980), stats.percentile(99));
+        assertEquals(Duration.ofMillis(2000), stats.percentile(100));
+    }
+
+    @Test
+    public void shouldReportZeroWithoutRecordings() {
+        assertEquals(Duration.ZERO, new LatencyStats().percentile(99));
+    }
+}
@@ -0,0 +1,383 @@
+package cd.go.contrib.elasticagents.openstack.simulator;
+
+import cd.go.contrib.elasticagents.openstack.Constants;
+import cd.go.contrib.elasticagents.openstack.OpenStackPlugin;
+import cd.go.contrib.elasticagents.openstack.Request;
+import cd.go.contrib.elasticagents.openstack.client.FakeOpenStack;
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.utils.Gsons;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives {@link OpenStackPlugin} like a GoCD server during the jobs of a {@link WorkloadProfile}, against
+ * {@link FakeOpenStack}, and reports throughput and latency per plugin message, how long jobs waited for an agent,
+ * and how many VMs were booted and deleted and for how long they were idle.
+ * <p>
+ * Jobs ask for an agent with create-agent until one is assigned, idle agents are offered waiting jobs with
+ * should-assign-work and report job-completion when done, and server-ping is sent periodically. An agent
+ * registers as soon as its server is ACTIVE.
+ * <p>
+ * Run with {@code ./gradlew simulate -Psimulator.profile=storm}.
+ */
+public class LoadSimulator implements AutoCloseable {
+    private static final String IMAGE_ID = "7637f039-027d-471f-8d6c-4177635f84f8";
+    private static final String IMAGE_NAME = "ubuntu-22.04";
+    private static final String FLAVOR_ID = "c1980bb5-ed59-4573-83c9-8391b53b3a55";
+    private static final String FLAVOR_NAME = "m1.medium";
+    private static final Duration ARRIVAL_TICK = Duration.ofMillis(100);
+    private static final List<Request> REQUESTS = Arrays.asList(Request.REQUEST_CREATE_AGENT,
+            Request.REQUEST_SHOULD_ASSIGN_WORK, Request.REQUEST_JOB_COMPLETION, Request.REQUEST_SERVER_PING);
+
+    private final WorkloadProfile profile;
+    private final FakeOpenStack openStack;
+    private final SimulatedGoServer goServer = new SimulatedGoServer();
+    private final OpenStackPlugin plugin = new OpenStackPlugin();
+    private final Map<String, String> clusterProfile;
+    private final Map<String, String> elasticProfile;
+    private final Map<Request, LatencyStats> stats = new EnumMap<>(Request.class);
+    private final LatencyStats jobWait = new LatencyStats();
+    private final ConcurrentSkipListMap<Long, Job> waiting = new ConcurrentSkipListMap<>();
+    private final Map<String, Job> running = new ConcurrentHashMap<>();
+    private final Set<String> offered = ConcurrentHashMap.newKeySet();
+    private final AtomicLong jobIds = new AtomicLong();
+    private final LongAdder jobsCompleted = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder taskFailures = new LongAdder();
+    private final AtomicReference<RuntimeException> firstTaskFailure = new AtomicReference<>();
+    private final Random random;
+    private final ScheduledExecutorService clock;
+    private final ExecutorService workers;
+    private long startedAt;
+
+    public LoadSimulator(WorkloadProfile profile) throws Exception {
+        this.profile = profile;
+        this.random = new Random(profile.seed());
+        this.openStack = new FakeOpenStack()
+                .withImage(IMAGE_ID, IMAGE_NAME)
+                .withFlavor(FLAVOR_ID, FLAVOR_NAME)
+                .latency(profile.apiLatency())
+                .errorRate(profile.apiErrorRate())
+                .maxServers(profile.quota())
+                .bootDelay(profile.bootDelay());
+        this.clusterProfile = clusterProfile();
+        this.elasticProfile = elasticProfile();
+        REQUESTS.forEach(request -> stats.put(request, new LatencyStats()));
+        this.clock = Executors.newSingleThreadScheduledExecutor(daemon("simulator-clock"));
+        this.workers = Executors.newFixedThreadPool(profile.threads(), daemon("simulator-worker"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final WorkloadProfile profile = WorkloadProfile.named(args.length > 0 ? args[0] : "storm");
+        try (LoadSimulator simulator = new LoadSimulator(profile)) {
+            System.out.println(simulator.run());
+        }
+    }
+
+    /**
+     * Run the workload for the duration of the profile.
+     *
+     * @return the report
+     */
+    public String run() throws InterruptedException {
+        plugin.initializeGoApplicationAccessor(goServer);
+        startedAt = System.nanoTime();
+        every(ARRIVAL_TICK, this::jobsArrive);
+        every(Duration.ofMillis(250), this::registerAgents);
+        every(Duration.ofSeconds(1), this::requestAgents);
+        every(Duration.ofMillis(500), this::offerWork);
+        every(profile.pingInterval(), () -> workers.execute(() -> send(Request.REQUEST_SERVER_PING,
+                Collections.singletonMap("all_cluster_profile_properties", Collections.singletonList(clusterProfile)))));
+
+        Thread.sleep(profile.duration().toMillis());
+        clock.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        return report(Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    @Override
+    public void close() {
+        clock.shutdownNow();
+        workers.shutdownNow();
+        openStack.close();
+    }
+
+    private void jobsArrive() {
+        final double jobsPerTick = profile.jobsPerMinuteAt(elapsed()) * ARRIVAL_TICK.toMillis() / 60_000.0;
+        for (int i = poisson(jobsPerTick); i > 0; i--) {
+            final Job job = new Job(jobIds.incrementAndGet());
+            waiting.put(job.id, job);
+            requestAgent(job);
+        }
+    }
+
+    private void requestAgents() {
+        final long now = System.nanoTime();
+        for (Job job : waiting.values()) {
+            if (now - job.agentRequestedAt >= profile.createAgentInterval().toNanos()) {
+                requestAgent(job);
+            }
+        }
+    }
+
+    private void requestAgent(Job job) {
+        job.agentRequestedAt = System.nanoTime();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("auto_register_key", "simulated");
+        body.put("job_identifier", job.identifier());
+        body.put("elastic_agent_profile_properties", elasticProfile);
+        body.put("cluster_profile_properties", clusterProfile);
+        execute(() -> send(Request.REQUEST_CREATE_AGENT, body));
+    }
+
+    /**
+     * Agents register once their server is ACTIVE, and lose contact when it is gone.
+     */
+    private void registerAgents() {
+        final Set<String> active = openStack.activeServerIds();
+        active.forEach(goServer::register);
+        for (String agentId : goServer.agentIds()) {
+            if (!active.contains(agentId)) {
+                goServer.lostContact(agentId);
+            }
+        }
+    }
+
+    /**
+     * Offer each idle agent the longest waiting job that is not already being offered to another agent.
+     */
+    private void offerWork() {
+        final Iterator<Job> jobs = waiting.values().iterator();
+        for (Agent agent : goServer.idleAgents()) {
+            if (!offered.add(agent.elasticAgentId())) {
+                continue;
+            }
+            Job job = null;
+            while (job == null && jobs.hasNext()) {
+                final Job candidate = jobs.next();
+                job = candidate.offered.compareAndSet(false, true) ? candidate : null;
+            }
+            if (job == null) {
+                offered.remove(agent.elasticAgentId());
+                return;
+            }
+            final Job offeredJob = job;
+            execute(() -> offer(agent, offeredJob));
+        }
+    }
+
+    private void offer(Agent agent, Job job) {
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("agent", agent);
+            body.put("job_identifier", job.identifier());
+            body.put("elastic_agent_profile_properties", elasticProfile);
+            body.put("cluster_profile_properties", clusterProfile);
+            final GoPluginApiResponse response = send(Request.REQUEST_SHOULD_ASSIGN_WORK, body);
+            if (response != null && "true".equals(response.responseBody()) && goServer.assign(agent.elasticAgentId())) {
+                start(agent.elasticAgentId(), job);
+            } else {
+                job.offered.set(false);
+            }
+        } finally {
+            offered.remove(agent.elasticAgentId());
+        }
+    }
+
+    private void start(String agentId, Job job) {
+        waiting.remove(job.id);
+        job.startedAt = System.nanoTime();
+        jobWait.record(job.startedAt - job.arrivedAt);
+        running.put(agentId, job);
+        final long durationMillis = (long) (profile.jobDuration().toMillis() * (0.5 + ThreadLocalRandom.current().nextDouble()));
+        try {
+            clock.schedule(() -> execute(() -> complete(agentId, job)), durationMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the simulation ended while the job was running
+        }
+    }
+
+    private void complete(String agentId, Job job) {
+        busyNanos.add(System.nanoTime() - job.startedAt);
+        running.remove(agentId);
+        jobsCompleted.increment();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("elastic_agent_id", agentId);
+        body.put("job_identifier", job.identifier());
+        body.put("elastic_agent_profile_properties", elasticProfile);
+        body.put("cluster_profile_properties", clusterProfile);
+        send(Request.REQUEST_JOB_COMPLETION, body);
+        goServer.release(agentId);
+    }
+
+    private GoPluginApiResponse send(Request request, Object body) {
+        DefaultGoPluginApiRequest pluginRequest = new DefaultGoPluginApiRequest(Constants.EXTENSION_TYPE,
+                Constants.EXTENSION_API_VERSION, request.requestName());
+        pluginRequest.setRequestBody(Gsons.UNDERSCORES.toJson(body));
+        final LatencyStats requestStats = stats.get(request);
+        final long started = System.nanoTime();
+        try {
+            final GoPluginApiResponse response = plugin.handle(pluginRequest);
+            requestStats.record(System.nanoTime() - started);
+            if (response.responseCode() != 200) {
+                requestStats.error();
+            }
+            return response;
+        } catch (Exception e) {
+            requestStats.record(System.nanoTime() - started);
+            requestStats.error();
+            return null;
+        }
+    }
+
+    private String report(Duration elapsed) {
+        final double seconds = elapsed.toMillis() / 1000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Workload profile [%s], %d threads, ran %.0f s%n", profile.name(), profile.threads(), seconds));
+        report.append(String.format("Jobs: %d arrived, %d completed, %d running, %d waiting; wait for agent p50 %.1f s, p99 %.1f s%n",
+                jobIds.get(), jobsCompleted.sum(), running.size(), waiting.size(),
+                jobWait.percentile(50).toMillis() / 1000.0, jobWait.percentile(99).toMillis() / 1000.0));
+        report.append(String.format("%n%-20s %8s %8s %9s %9s %9s %7s%n", "message", "count", "msg/s", "p50 ms", "p99 ms", "max ms", "errors"));
+        for (Request request : REQUESTS) {
+            final LatencyStats requestStats = stats.get(request);
+            report.append(String.format("%-20s %8d %8.1f %9.1f %9.1f %9.1f %7d%n",
+                    request.requestName().substring(request.requestName().lastIndexOf('.') + 1),
+                    requestStats.count(), requestStats.count() / seconds, millis(requestStats.percentile(50)),
+                    millis(requestStats.percentile(99)), millis(requestStats.percentile(100)), requestStats.errors()));
+        }
+
+        final int alive = openStack.serverCount();
+        final int deleted = openStack.deletedServerCount();
+        final double vmMinutes = openStack.serverTime().toMillis() / 60_000.0;
+        double busyMinutes = busyNanos.sum() / 60e9;
+        final long now = System.nanoTime();
+        for (Job job : running.values()) {
+            busyMinutes += (now - job.startedAt) / 60e9;
+        }
+        report.append(String.format("%nVMs: %d booted, %d deleted, %d alive; %.1f VM-minutes, %.1f busy, %.1f wasted%n",
+                alive + deleted, deleted, alive, vmMinutes, busyMinutes, Math.max(0, vmMinutes - busyMinutes)));
+        report.append(String.format("OpenStack calls: %d tokens, %d boots, %d deletes, %d listings, %d server reads%n",
+                openStack.requestCount("POST /v3/auth/tokens"), openStack.requestCount("POST /servers"),
+                openStack.requestCount("DELETE /servers/{id}"), openStack.requestCount("GET /servers/detail"),
+                openStack.requestCount("GET /servers/{id}")));
+        if (taskFailures.sum() > 0) {
+            report.append(String.format("Simulator task failures: %d, first: %s%n", taskFailures.sum(), firstTaskFailure.get()));
+        }
+        return report.toString();
+    }
+
+    private Map<String, String> clusterProfile() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("openstack_endpoint", openStack.keystoneV3Endpoint());
+        settings.put("openstack_domain", "Default");
+        settings.put("openstack_tenant", "tenant");
+        settings.put("openstack_vm_prefix", "sim-");
+        settings.put("openstack_user", "user");
+        settings.put("openstack_password", "secret");
+        settings.put("go_server_url", "https://gocd.example.com:8154/go");
+        settings.put("agent_pending_register_timeout", "5");
+        settings.put("openstack_keystone_version", "3");
+        settings.put("agent_ttl_max", "30");
+        settings.put("default_min_instance_limit", "1");
+        settings.put("default_max_instance_limit", String.valueOf(profile.maxInstances()));
+        settings.put("openstack_image", IMAGE_NAME);
+        settings.put("openstack_image_cache_ttl", "30");
+        settings.put("use_previous_openstack_image", "false");
+        settings.put("openstack_flavor", FLAVOR_NAME);
+        settings.put("openstack_network", "780f2cfc-389b-4cc5-9b85-ed03a73975ee");
+        settings.put("ssl_verification_disabled", "false");
+        settings.put("delete_error_instances", "true");
+        return settings;
+    }
+
+    private Map<String, String> elasticProfile() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put(Constants.OPENSTACK_IMAGE_ID_ARGS, IMAGE_NAME);
+        properties.put(Constants.OPENSTACK_FLAVOR_ID_ARGS, FLAVOR_NAME);
+        properties.put(Constants.OPENSTACK_MIN_INSTANCE_LIMIT, "1");
+        properties.put(Constants.OPENSTACK_MAX_INSTANCE_LIMIT, String.valueOf(profile.maxInstances()));
+        if (profile.agentJobLimit() > 0) {
+            properties.put(Constants.AGENT_JOB_LIMIT_MAX, String.valueOf(profile.agentJobLimit()));
+        }
+        return properties;
+    }
+
+    private Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startedAt);
+    }
+
+    private int poisson(double mean) {
+        final double limit = Math.exp(-mean);
+        int count = 0;
+        double product = random.nextDouble();
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    private void every(Duration period, Runnable task) {
+        clock.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                taskFailures.increment();
+                firstTaskFailure.compareAndSet(null, e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void execute(Runnable task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the simulation ended
+        }
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Job {
+        private final long id;
+        private final long arrivedAt = System.nanoTime();
+        private final AtomicBoolean offered = new AtomicBoolean();
+        private volatile long agentRequestedAt;
+        private volatile long startedAt;
+
+        Job(long id) {
+            this.id = id;
+        }
+
+        Map<String, Object> identifier() {
+            Map<String, Object> identifier = new LinkedHashMap<>();
+            identifier.put("pipeline_name", "simulated");
+            identifier.put("pipeline_counter", id);
+            identifier.put("pipeline_label", String.valueOf(id));
+            identifier.put("stage_name", "build");
+            identifier.put("stage_counter", "1");
+            identifier.put("job_name", "job-" + id);
+            identifier.put("job_id", id);
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package cd.go.contrib.elasticagents.openstack.simulator;
+
+import cd.go.contrib.elasticagents.openstack.Constants;
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process GoCD server keeping the elastic agents that registered, and answering the calls the plugin makes.
+ */
+public class SimulatedGoServer extends GoApplicationAccessor {
+    private final Map<String, AtomicReference<Agent>> agents = new ConcurrentHashMap<>();
+    private final Set<String> registeredOnce = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public GoApiResponse submit(GoApiRequest request) {
+        switch (request.api()) {
+            case Constants.REQUEST_SERVER_LIST_AGENTS:
+                List<Agent> snapshot = new ArrayList<>();
+                agents.values().forEach(agent -> snapshot.add(agent.get()));
+                return DefaultGoApiResponse.success(Agent.toJSONArray(snapshot));
+            case Constants.PROCESS_DISABLE_AGENTS:
+                for (Agent agent : Agent.fromJSONArray(request.requestBody())) {
+                    update(agent.elasticAgentId(), current -> new Agent(current.elasticAgentId(), current.agentState(),
+                            current.buildState(), Agent.ConfigState.Disabled));
+                }
+                return DefaultGoApiResponse.success("");
+            case Constants.PROCESS_DELETE_AGENTS:
+                for (Agent agent : Agent.fromJSONArray(request.requestBody())) {
+                    agents.remove(agent.elasticAgentId());
+                }
+                return DefaultGoApiResponse.success("");
+            default:
+                return DefaultGoApiResponse.success("");
+        }
+    }
+
+    /**
+     * An agent started on a booted server and registered, which happens only once per server.
+     */
+    void register(String agentId) {
+        if (registeredOnce.add(agentId)) {
+            agents.put(agentId, new AtomicReference<>(
+                    new Agent(agentId, Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled)));
+        }
+    }
+
+    /**
+     * The server of an agent is gone.
+     */
+    void lostContact(String agentId) {
+        update(agentId, current -> new Agent(agentId, Agent.AgentState.LostContact, current.buildState(), current.configState()));
+    }
+
+    Set<String> agentIds() {
+        return agents.keySet();
+    }
+
+    List<Agent> idleAgents() {
+        List<Agent> idle = new ArrayList<>();
+        for (AtomicReference<Agent> agent : agents.values()) {
+            final Agent current = agent.get();
+            if (current.agentState() == Agent.AgentState.Idle && current.configState() == Agent.ConfigState.Enabled) {
+                idle.add(current);
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Move an idle agent to building.
+     *
+     * @return false if the agent was not idle anymore
+     */
+    boolean assign(String agentId) {
+        final AtomicReference<Agent> agent = agents.get(agentId);
+        if (agent == null) {
+            return false;
+        }
+        final Agent current = agent.get();
+        return current.agentState() == Agent.AgentState.Idle
+                && agent.compareAndSet(current, new Agent(agentId, Agent.AgentState.Building, Agent.BuildState.Building, current.configState()));
+    }
+
+    void release(String agentId) {
+        update(agentId, current -> current.agentState() != Agent.AgentState.Building ? current
+                : new Agent(agentId, Agent.AgentState.Idle, Agent.BuildState.Idle, current.configState()));
+    }
+
+    private void update(String agentId, UnaryOperator<Agent> update) {
+        final AtomicReference<Agent> agent = agents.get(agentId);
+        if (agent != null) {
+            agent.updateAndGet(update);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package cd.go.contrib.elasticagents.openstack.simulator;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How jobs arrive in a simulation and how GoCD and OpenStack behave while they run.
+ * Jobs arrive at random with the rate of the current {@link Phase}.
+ */
+public class WorkloadProfile {
+    private final String name;
+    private final List<Phase> phases;
+    private Duration jobDuration = Duration.ofSeconds(20);
+    private Duration bootDelay = Duration.ofSeconds(5);
+    private Duration apiLatency = Duration.ofMillis(20);
+    private double apiErrorRate;
+    private int quota = 200;
+    private int maxInstances = 50;
+    private int agentJobLimit;
+    private Duration createAgentInterval = Duration.ofSeconds(10);
+    private Duration pingInterval = Duration.ofSeconds(10);
+    private int threads = 16;
+    private long seed = 42;
+
+    public WorkloadProfile(String name, Phase... phases) {
+        this.name = name;
+        this.phases = Collections.unmodifiableList(Arrays.asList(phases));
+    }
+
+    /**
+     * <ul>
+     *     <li>steady: 30 jobs per minute for 3 minutes</li>
+     *     <li>storm: a quiet minute, 2 minutes of 300 jobs per minute and a quiet minute to drain</li>
+     *     <li>single-use: storm with agents that are terminated after one job</li>
+     *     <li>flaky: steady against a slow OpenStack that fails 5% of the calls</li>
+     * </ul>
+     */
+    public static WorkloadProfile named(String name) {
+        switch (name) {
+            case "steady":
+                return new WorkloadProfile(name, new Phase(Duration.ofMinutes(3), 30));
+            case "storm":
+                return storm(name);
+            case "single-use":
+                return storm(name).agentJobLimit(1);
+            case "flaky":
+                return new WorkloadProfile(name, new Phase(Duration.ofMinutes(3), 30))
+                        .apiLatency(Duration.ofMillis(200))
+                        .apiErrorRate(0.05);
+            default:
+                throw new IllegalArgumentException("Unknown workload profile " + name + ", use one of steady, storm, single-use or flaky");
+        }
+    }
+
+    private static WorkloadProfile storm(String name) {
+        return new WorkloadProfile(name,
+                new Phase(Duration.ofMinutes(1), 10),
+                new Phase(Duration.ofMinutes(2), 300),
+                new Phase(Duration.ofMinutes(1), 10));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<Phase> phases() {
+        return phases;
+    }
+
+    public Duration duration() {
+        return phases.stream().map(Phase::duration).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /**
+     * Jobs per minute at the given time since the start, 0 after the last phase.
+     */
+    public double jobsPerMinuteAt(Duration elapsed) {
+        Duration end = Duration.ZERO;
+        for (Phase phase : phases) {
+            end = end.plus(phase.duration());
+            if (elapsed.compareTo(end) < 0) {
+                return phase.jobsPerMinute();
+            }
+        }
+        return 0;
+    }
+
+    public Duration jobDuration() {
+        return jobDuration;
+    }
+
+    public WorkloadProfile jobDuration(Duration jobDuration) {
+        this.jobDuration = jobDuration;
+        return this;
+    }
+
+    public Duration bootDelay() {
+        return bootDelay;
+    }
+
+    public WorkloadProfile bootDelay(Duration bootDelay) {
+        this.bootDelay = bootDelay;
+        return this;
+    }
+
+    public Duration apiLatency() {
+        return apiLatency;
+    }
+
+    public WorkloadProfile apiLatency(Duration apiLatency) {
+        this.apiLatency = apiLatency;
+        return this;
+    }
+
+    public double apiErrorRate() {
+        return apiErrorRate;
+    }
+
+    public WorkloadProfile apiErrorRate(double apiErrorRate) {
+        this.apiErrorRate = apiErrorRate;
+        return this;
+    }
+
+    public int quota() {
+        return quota;
+    }
+
+    public WorkloadProfile quota(int quota) {
+        this.quota = quota;
+        return this;
+    }
+
+    public int maxInstances() {
+        return maxInstances;
+    }
+
+    public WorkloadProfile maxInstances(int maxInstances) {
+        this.maxInstances = maxInstances;
+        return this;
+    }
+
+    /**
+     * Jobs an agent runs before it is terminated, 0 for no limit.
+     */
+    public int agentJobLimit() {
+        return agentJobLimit;
+    }
+
+    public WorkloadProfile agentJobLimit(int agentJobLimit) {
+        this.agentJobLimit = agentJobLimit;
+        return this;
+    }
+
+    /**
+     * How often GoCD asks again to create an agent for a job that is still waiting.
+     */
+    public Duration createAgentInterval() {
+        return createAgentInterval;
+    }
+
+    public WorkloadProfile createAgentInterval(Duration createAgentInterval) {
+        this.createAgentInterval = createAgentInterval;
+        return this;
+    }
+
+    public Duration pingInterval() {
+        return pingInterval;
+    }
+
+    public WorkloadProfile pingInterval(Duration pingInterval) {
+        this.pingInterval = pingInterval;
+        return this;
+    }
+
+    /**
+     * Threads calling the plugin, like the GoCD server threads sending plugin messages.
+     */
+    public int threads() {
+        return threads;
+    }
+
+    public WorkloadProfile threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public WorkloadProfile seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public static class Phase {
+        private final Duration duration;
+        private final double jobsPerMinute;
+
+        public Phase(Duration duration, double jobsPerMinute) {
+            this.duration = duration;
+            this.jobsPerMinute = jobsPerMinute;
+        }
+
+        public Duration duration() {
+            return duration;
+        }
+
+        public double jobsPerMinute() {
+            return jobsPerMinute;
+        }
+    }
+}
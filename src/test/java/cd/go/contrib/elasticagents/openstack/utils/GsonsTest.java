@@ -0,0 +1,51 @@
+package cd.go.contrib.elasticagents.openstack.utils;
+
+import cd.go.contrib.elasticagents.openstack.model.Agent;
+import cd.go.contrib.elasticagents.openstack.model.ClusterProfileProperties;
+import cd.go.contrib.elasticagents.openstack.requests.ShouldAssignWorkRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GsonsTest {
+
+    @Test
+    public void shouldRoundTripClusterProfileWithPreloadedAdapters() {
+        Gsons.preload();
+
+        ClusterProfileProperties properties = ClusterProfileProperties.fromJSON(
+                "{\"openstack_endpoint\":\"http://keystone/v3\",\"agent_pending_register_timeout\":\"10\",\"unknown_field\":\"x\"}");
+        assertEquals("http://keystone/v3", properties.getOpenstackEndpoint());
+        assertEquals(Duration.ofMinutes(10), properties.getAgentPendingRegisterPeriod());
+
+        String json = Gsons.UNDERSCORES_EXPOSED.toJson(properties);
+        assertTrue(json.contains("\"openstack_endpoint\":\"http://keystone/v3\""));
+        assertTrue(json.contains("\"agent_pending_register_timeout\":\"10\""));
+        assertFalse(json.contains("agent_register_period"));
+        assertFalse(json.contains("unknown_field"));
+    }
+
+    @Test
+    public void shouldParseShouldAssignWorkRequestWithClusterProfileAfterUse() {
+        ShouldAssignWorkRequest request = ShouldAssignWorkRequest.fromJSON(
+                "{\"environment\":\"prod\",\"cluster_profile_properties\":{\"openstack_endpoint\":\"http://keystone/v3\",\"agent_pending_register_timeout\":\"10\"}}");
+        request.clusterProfileProperties().getAgentPendingRegisterPeriod();
+
+        assertEquals("prod", request.environment());
+        assertEquals("http://keystone/v3", request.clusterProfileProperties().getOpenstackEndpoint());
+        assertFalse(Gsons.UNDERSCORES.toJson(request).contains("agent_register_period"));
+    }
+
+    @Test
+    public void shouldSerializeAgentsWithSharedInstance() {
+        String json = Agent.toJSONArray(Collections.singletonList(
+                new Agent("i-1", Agent.AgentState.Idle, Agent.BuildState.Idle, Agent.ConfigState.Enabled)));
+
+        assertEquals("[{\"agent_id\":\"i-1\",\"agent_state\":\"Idle\",\"build_state\":\"Idle\",\"config_state\":\"Enabled\"}]", json);
+    }
+}
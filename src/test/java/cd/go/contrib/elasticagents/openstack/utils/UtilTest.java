@@ -4,6 +4,7 @@ package cd.go.contrib.elasticagents.openstack.utils;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class UtilTest {
@@ -36,4 +37,12 @@ public class UtilTest {
         assertEquals(10, Util.calculateTTL(10, 10));
         assertEquals(10, Util.calculateTTL(10, -11));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldHashEveryValueSeparately() {
+        assertEquals(64, Util.sha256Hex("a", "b").length());
+        assertEquals(Util.sha256Hex("a", "b"), Util.sha256Hex("a", "b"));
+        assertNotEquals(Util.sha256Hex("a", "b"), Util.sha256Hex("ab", ""));
+        assertNotEquals(Util.sha256Hex("a", null), Util.sha256Hex("a", "null"));
+    }
+}